@@ -1,12 +1,11 @@
 package algorithm;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Deque;
+import java.util.Collection;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collector;
@@ -52,74 +51,45 @@ public class FirstMergeRecorder {
 
 
     /**
-     * Return a reference to the singleton instance of this class, creating an
-     * instance when not done before. The instance will use the given
-     * {@link GrowFunction}, and when an instance was created before then the
-     * grow function being used by that instance is changed before a reference
-     * to it is returned. <b>Note</b> that that will change the grow function
-     * being used for all users of the singleton instance!
-     *
-     * The reason that this class has a singleton instance is that it internally
-     * uses the Stream API with instances of a private inner class. Other
-     * instances of {@link FirstMergeRecorder} may, via the Stream API, use
-     * instances of the private inner class that have a different parent. This
-     * goes, as one might expect, horribly wrong. Using a singleton instance is
-     * a quick and easy way around this problem.
-     *
-     * @param g Grow function to use when determining which merges occur first.
-     * @return A reference to the singleton instance of this class.
+     * Zoom levels at which {@link #batch} glyphs touch {@link #from}.
      */
-    public static FirstMergeRecorder getInstance(GrowFunction g) {
-        INSTANCE.g = g;
-        return INSTANCE;
-    }
-
-
+    private double[] batchAt;
     /**
-     * Collector for stream operations.
+     * Glyphs that are gathered by sequential scans, so that the moments at
+     * which they touch {@link #from} can be computed in a single batch.
      */
-    private static Collector<Glyph, FirstMerge, FirstMerge> collector;
-
-
+    private Glyph[] batch;
     /**
-     * Singleton instance.
+     * Number of entities represented by {@link #batch} glyphs.
      */
-    private static final FirstMergeRecorder INSTANCE = new FirstMergeRecorder(null);
+    private int[] batchN;
     /**
-     * Used in {@link FirstMerge#combine(FirstMerge)}.
+     * X-coordinates of the centers of {@link #batch} glyphs.
      */
-    private static final ThreadLocal<FirstMerge> COMBINE_RESULT =
-            ThreadLocal.withInitial(() -> INSTANCE.new FirstMerge());
-    private static final Deque<FirstMerge> REUSABLE_RECORDS = new ArrayDeque<>();
-    private static FirstMerge firstReusedRecord = null;
-
-
+    private double[] batchX;
     /**
-     * Returns an instance of {@link FirstMerge} that is {@link FirstMerge#reset()}
-     * and ready to accept and combine. This method may cache instances and reuse
-     * them. {@link #REUSABLE_RECORDS} is used to this end.
+     * Y-coordinates of the centers of {@link #batch} glyphs.
      */
-    private synchronized static FirstMerge newInstance() {
-        // attempt to use cache
-        if (REUSABLE_RECORDS.size() > 0 && (firstReusedRecord == null ||
-                REUSABLE_RECORDS.getLast() != firstReusedRecord)) {
-            FirstMerge record = REUSABLE_RECORDS.pollLast();
-            REUSABLE_RECORDS.addFirst(record);
-            if (firstReusedRecord == null) {
-                firstReusedRecord = record;
-            }
-            return record;
-        }
-        // we are forced to create a new instance, do so
-        FirstMerge record = INSTANCE.new FirstMerge();
-        REUSABLE_RECORDS.addFirst(record);
-        if (firstReusedRecord == null) {
-            firstReusedRecord = record;
-        }
-        return record;
-    }
-
-
+    private double[] batchY;
+    /**
+     * Glyphs that merges are recorded with in {@link B#ROBUST robust} mode,
+     * where all merges are recorded rather than only the first ones.
+     */
+    private final List<Glyph> candidates;
+    /**
+     * Collector for stream operations.
+     */
+    private Collector<Glyph, FirstMerge, FirstMerge> collector;
+    /**
+     * Used in {@link FirstMerge#combine(FirstMerge)}. Combining in parallel
+     * streams uses {@link #newRecord() records from the pool} instead.
+     */
+    private final FirstMerge combineResult;
+    /**
+     * Records that can be handed out by {@link #newRecord()}, as a stack that
+     * is linked through {@link FirstMerge#nextRecord}.
+     */
+    private final AtomicReference<FirstMerge> freeRecords;
     /**
      * Glyph with which merges are recorded.
      */
@@ -133,16 +103,43 @@ public class FirstMergeRecorder {
      * will merge with {@link from} at that point in time.
      */
     private FirstMerge merge;
+    /**
+     * Record that sequential scans collect merges in, before combining those
+     * with {@link #merge}.
+     */
+    private final FirstMerge scan;
+    /**
+     * Records that were handed out by {@link #newRecord()} since merges were
+     * last recorded {@link #from(Glyph) from} a glyph, as a stack that is
+     * linked through {@link FirstMerge#nextRecord}.
+     */
+    private final AtomicReference<FirstMerge> usedRecords;
 
 
     /**
      * Construct a recorder that will use the given {@link GrowFunction} to
      * determine when glyphs should merge.
+     *
+     * Records that are used internally by a recorder belong to that recorder.
+     * This means that different recorders can be used by different threads at
+     * the same time, as long as they do not record merges with the same glyph.
+     * Every clusterer or worker thread should thus use its own recorder.
      */
-    private FirstMergeRecorder(GrowFunction g) {
+    public FirstMergeRecorder(GrowFunction g) {
+        this.batch = new Glyph[0];
+        this.batchAt = new double[0];
+        this.batchN = new int[0];
+        this.batchX = new double[0];
+        this.batchY = new double[0];
+        this.candidates = new ArrayList<>();
+        this.collector = null;
+        this.combineResult = new FirstMerge();
+        this.freeRecords = new AtomicReference<>();
         this.from = null;
         this.g = g;
         this.merge = new FirstMerge();
+        this.scan = new FirstMerge();
+        this.usedRecords = new AtomicReference<>();
     }
 
 
@@ -166,10 +163,10 @@ public class FirstMergeRecorder {
     public void addEventsTo(Queue<Event> q, Logger l) {
         GlyphMerge[] merges;
         if (B.ROBUST.get()) {
-            for (Glyph glyph : merge.getGlyphs()) {
+            for (Glyph glyph : candidates) {
                 q.add(new GlyphMerge(from, glyph, g));
             }
-            merge.getGlyphs().clear();
+            candidates.clear();
         } else {
             while ((merges = merge.pop()) != null) {
                 for (GlyphMerge merge : merges) {
@@ -181,15 +178,15 @@ public class FirstMergeRecorder {
             }
             from.popMergeInto(q, l);
         }
-        firstReusedRecord = null; // we can reuse all records again
+        releaseRecords(); // we can reuse all records again
     }
 
     public Collector<Glyph, FirstMerge, FirstMerge> collector() {
         if (collector == null) {
             collector = Collector.of(
-                    FirstMergeRecorder::newInstance,
+                    this::newRecord,
                     (m, g) -> m.accept(g),
-                    (a, b) -> a.combine(b),
+                    (a, b) -> a.combine(b, newRecord()),
                     Characteristics.UNORDERED);
         }
         return collector;
@@ -206,7 +203,9 @@ public class FirstMergeRecorder {
             LOGGER.log(Level.FINE, "recording merges from {0}", from);
         }
         this.from = from;
+        this.candidates.clear();
         this.merge.reset();
+        releaseRecords();
     }
 
     /**
@@ -221,34 +220,77 @@ public class FirstMergeRecorder {
      * @param upto Index up to but excluding which glyphs will be recorded.
      */
     public void record(Glyph[] glyphs, int from, int upto) {
-        record(Arrays.stream(glyphs, from, upto));
+        if (B.ROBUST.get()) {
+            record(Arrays.stream(glyphs, from, upto));
+            return;
+        }
+        scan.reset();
+        if (g.canIntersectInBatch()) {
+            int len = 0;
+            for (int i = from; i < upto; ++i) {
+                Glyph glyph = glyphs[i];
+                if (glyph.isAlive() && glyph != this.from) {
+                    gather(glyph, len++);
+                }
+            }
+            scanBatch(len);
+        } else {
+            for (int i = from; i < upto; ++i) {
+                Glyph glyph = glyphs[i];
+                if (glyph.isAlive() && glyph != this.from) {
+                    scan.accept(glyph);
+                }
+            }
+        }
+        merge.combine(scan);
     }
 
     /**
      * {@link #record(Glyph) Record} all glyphs in the given set, as long as
      * they are {@link Glyph#alive} and not {@link #from}.
      *
-     * This method may use parallelization to speed up recording.
-     *
      * @param glyphs Set of glyphs to record.
      */
-    public void record(List<Glyph> glyphs) {
-        if (glyphs != null) {
+    public void record(Collection<Glyph> glyphs) {
+        if (glyphs == null) {
+            return;
+        }
+        if (B.ROBUST.get()) {
             record(glyphs.stream());
+            return;
+        }
+        scan.reset();
+        if (g.canIntersectInBatch()) {
+            int len = 0;
+            for (Glyph glyph : glyphs) {
+                if (glyph.isAlive() && glyph != from) {
+                    gather(glyph, len++);
+                }
+            }
+            scanBatch(len);
+        } else {
+            for (Glyph glyph : glyphs) {
+                if (glyph.isAlive() && glyph != from) {
+                    scan.accept(glyph);
+                }
+            }
         }
+        merge.combine(scan);
     }
 
     /**
      * {@link #record(Glyph) Record} all glyphs in the given stream, as long as
      * they are {@link Glyph#alive} and not {@link #from}.
      *
-     * This method may use parallelization to speed up recording.
+     * This method may use parallelization to speed up recording. For
+     * sequential scans over arrays and lists, {@link #record(Glyph[], int, int)}
+     * and {@link #record(Collection)} are cheaper, as they do not allocate.
      *
      * @param glyphs Stream of glyphs to record.
      */
     public void record(Stream<Glyph> glyphs) {
         if (B.ROBUST.get()) {
-            merge.getGlyphs().addAll(glyphs.parallel()
+            candidates.addAll(glyphs.parallel()
                 .filter((glyph) -> glyph.isAlive() && glyph != from)
                 .collect(Collectors.toSet()));
         } else {
@@ -271,9 +313,87 @@ public class FirstMergeRecorder {
     }
 
 
+    /**
+     * Store the given glyph at the given index of the {@link #batch} arrays,
+     * growing those when necessary.
+     */
+    private void gather(Glyph glyph, int index) {
+        if (index == batch.length) {
+            int capacity = batch.length + (batch.length >> 1) + 16;
+            batch = Arrays.copyOf(batch, capacity);
+            batchAt = Arrays.copyOf(batchAt, capacity);
+            batchN = Arrays.copyOf(batchN, capacity);
+            batchX = Arrays.copyOf(batchX, capacity);
+            batchY = Arrays.copyOf(batchY, capacity);
+        }
+        batch[index] = glyph;
+        batchN[index] = glyph.getN();
+        batchX[index] = glyph.getX();
+        batchY[index] = glyph.getY();
+    }
+
+    /**
+     * Returns an instance of {@link FirstMerge} that is {@link FirstMerge#reset()}
+     * and ready to accept and combine. This method may reuse instances that
+     * have been {@link #releaseRecords() released}. It does not lock, so that
+     * parallel streams can obtain records concurrently.
+     */
+    private FirstMerge newRecord() {
+        // attempt to use cache; records are only pushed onto the free stack
+        // by releaseRecords, which does not run concurrently with this
+        FirstMerge record;
+        do {
+            record = freeRecords.get();
+        } while (record != null &&
+                !freeRecords.compareAndSet(record, record.nextRecord));
+        if (record == null) {
+            // we are forced to create a new instance, do so
+            record = new FirstMerge();
+        } else {
+            record.reset();
+        }
+        // remember that the record is in use, so that it can be released
+        FirstMerge used;
+        do {
+            used = usedRecords.get();
+            record.nextRecord = used;
+        } while (!usedRecords.compareAndSet(used, record));
+        return record;
+    }
+
+    /**
+     * Compute when the first {@code len} {@link #batch} glyphs touch
+     * {@link #from} in one go, and have {@link #scan} accept them.
+     */
+    private void scanBatch(int len) {
+        g.intersectAt(from, batchX, batchY, batchN, len, batchAt);
+        for (int i = 0; i < len; ++i) {
+            scan.accept(batch[i], batchAt[i]);
+            batch[i] = null;
+        }
+    }
+
+    /**
+     * Make all records that were handed out by {@link #newRecord()} available
+     * for reuse. May only be called when no records are in use anymore.
+     */
+    private void releaseRecords() {
+        FirstMerge record = usedRecords.getAndSet(null);
+        while (record != null) {
+            FirstMerge next = record.nextRecord;
+            record.nextRecord = freeRecords.get();
+            freeRecords.set(record);
+            record = next;
+        }
+    }
+
+
     /**
      * Container for collecting the first merge; when will it happen and which
      * glyphs are involved, aside from {@link FirstMergeRecorder#from}.
+     *
+     * Times and glyphs are kept in arrays that are allocated once, and are
+     * reused when the container is {@link #reset()}.
      */
     private class FirstMerge {
 
@@ -282,14 +402,22 @@ public class FirstMergeRecorder {
          * are recorded so far. This will contain the timestamp of the first
          * event, then the timestamp of the second, et cetera.
          */
-        private List<Double> at;
+        private double[] at;
+        /**
+         * Number of glyphs in every slot of {@link #glyphs}.
+         */
+        private int[] counts;
+        /**
+         * Glyphs that touch {@link FirstMergeRecorder#from} at time
+         * {@link #at}. In practice every slot will almost always contain just a
+         * single glyph. Similarly to {@link #at}, this tracks the glyphs for
+         * the first, second, ... merge events.
+         */
+        private Glyph[][] glyphs;
         /**
-         * Set of glyphs that touch {@link FirstMergeRecorder#from} at time
-         * {@link #at}. In practice this will almost always contain just a
-         * single glyph. Similarly to {@link #at}, this is a list that tracks
-         * the set for the first, second, ... merge events.
+         * Next record on the stack of free or used records this record is on.
          */
-        private List<List<Glyph>> glyphs;
+        private FirstMerge nextRecord;
         /**
          * Number of merges that have been recorded.
          */
@@ -297,13 +425,11 @@ public class FirstMergeRecorder {
 
 
         public FirstMerge() {
-            this.at = new ArrayList<>(Collections.nCopies(
-                    I.MAX_MERGES_TO_RECORD.get(), Double.POSITIVE_INFINITY));
-            this.glyphs = new ArrayList<>(I.MAX_MERGES_TO_RECORD.get());
-            for (int i = 0; i < I.MAX_MERGES_TO_RECORD.get(); ++i) {
-                this.glyphs.add(new ArrayList<>(1));
-            }
-            this.size = 0;
+            this.at = new double[0];
+            this.counts = new int[0];
+            this.glyphs = new Glyph[0][];
+            this.nextRecord = null;
+            reset();
             if (LOGGER != null) {
                 LOGGER.log(Level.FINER, "constructed an empty FirstMerge #{0}",
                         hashCode());
@@ -311,104 +437,101 @@ public class FirstMergeRecorder {
         }
 
         public void accept(Glyph candidate) {
+            accept(candidate, g.intersectAt(from, candidate));
+        }
+
+        /**
+         * Accept a glyph that touches {@link FirstMergeRecorder#from} at the
+         * given zoom level.
+         */
+        public void accept(Glyph candidate, double at) {
             if (LOGGER != null) {
                 LOGGER.log(Level.FINER, "accepting {0} into #{1}",
                         new Object[] {candidate, hashCode()});
             }
-            double at = g.intersectAt(from, candidate);
-            for (int i = 0; i < I.MAX_MERGES_TO_RECORD.get(); ++i) {
-                if (at < this.at.get(i)) {
-                    if (this.at.get(i).isInfinite()) {
+            int k = this.at.length;
+            for (int i = 0; i < k; ++i) {
+                if (at < this.at[i]) {
+                    if (Double.isInfinite(this.at[i])) {
                         size++;
                     }
-                    // make room to shift, if needed
-                    if (this.at.size() == I.MAX_MERGES_TO_RECORD.get()) {
-                        this.at.remove(this.at.size() - 1);
-                        this.glyphs.add(i, this.glyphs.remove(this.glyphs.size() - 1));
-                    }
-                    this.at.add(i, at);
-                    this.glyphs.get(i).clear();
-                    this.glyphs.get(i).add(candidate);
+                    // shift later slots to make room, reusing the last slot
+                    Glyph[] last = this.glyphs[k - 1];
+                    Arrays.fill(last, 0, this.counts[k - 1], null);
+                    System.arraycopy(this.at, i, this.at, i + 1, k - 1 - i);
+                    System.arraycopy(this.counts, i, this.counts, i + 1, k - 1 - i);
+                    System.arraycopy(this.glyphs, i, this.glyphs, i + 1, k - 1 - i);
+                    this.at[i] = at;
+                    this.glyphs[i] = last;
+                    this.counts[i] = 0;
+                    add(i, candidate);
                     break;
-                } else if (at == this.at.get(i)) {
-                    this.glyphs.get(i).add(candidate);
+                } else if (at == this.at[i]) {
+                    add(i, candidate);
                     break;
                 }
-                // if at > this.at.get(i), try next i...
+                // if at > this.at[i], try next i...
             }
             if (LOGGER != null) {
                 LOGGER.log(Level.FINER, "#{0} now has glyphs {1} at {2}",
-                    new Object[] {
-                        hashCode(),
-                        "[" + glyphs.stream().map((glyphSet) ->
-                            glyphSet.stream().map(Glyph::toString).collect(
-                                Collectors.joining(", "))
-                        ).collect(Collectors.joining("], [")) + "]",
-                        "[" + this.at.stream().map(Object::toString).collect(
-                                Collectors.joining(", ")) + "]"
-                    });
+                    new Object[] {hashCode(), glyphsToString(),
+                        Arrays.toString(this.at)});
             }
         }
 
         public FirstMerge combine(FirstMerge that) {
+            return combine(that, combineResult);
+        }
+
+        /**
+         * Combine the given record into this one, using the given record as
+         * scratch space. The scratch record is reset afterwards.
+         */
+        public FirstMerge combine(FirstMerge that, FirstMerge result) {
             if (LOGGER != null) {
                 LOGGER.log(Level.FINER, "combining #{0} and #{1};\n#{0} has glyphs {2} at {3};\n#{1} has glyphs {4} at {5}",
                         new Object[] {hashCode(), that.hashCode(),
-                            "[" + this.glyphs.stream().map((glyphSet) ->
-                                glyphSet.stream().map(Glyph::toString).collect(
-                                    Collectors.joining(", "))
-                            ).collect(Collectors.joining("], [")) + "]",
-                            "[" + this.at.stream().map(Object::toString).collect(
-                                    Collectors.joining(", ")) + "]",
-                            "[" + that.glyphs.stream().map((glyphSet) ->
-                                glyphSet.stream().map(Glyph::toString).collect(
-                                    Collectors.joining(", "))
-                            ).collect(Collectors.joining("], [")) + "]",
-                            "[" + that.at.stream().map(Object::toString).collect(
-                                    Collectors.joining(", ")) + "]"
-                        });
+                            this.glyphsToString(), Arrays.toString(this.at),
+                            that.glyphsToString(), Arrays.toString(that.at)});
             }
             int thisInd = 0;
             int thatInd = 0;
-            FirstMerge result = COMBINE_RESULT.get();
-            for (int i = 0; i < I.MAX_MERGES_TO_RECORD.get(); ++i) {
-                // need to be careful here that we don't have both lists
-                // reference the same sublist; won't go well with resetting
-                if (that.at.get(thatInd) < this.at.get(thisInd)) {
-                    Utils.swap(result.at, i, that.at, thatInd);
-                    Utils.swap(result.glyphs, i, that.glyphs, thatInd);
+            if (result.at.length != this.at.length) {
+                result.reset(); // number of merges to record has changed
+            }
+            for (int i = 0; i < this.at.length; ++i) {
+                // need to be careful here that we don't have both records
+                // reference the same slot; won't go well with resetting
+                if (that.at[thatInd] < this.at[thisInd]) {
+                    result.swap(i, that, thatInd);
                     thatInd++;
-                } else if (Utils.Double.eq(that.at.get(thatInd), this.at.get(thisInd))) {
-                    Utils.swap(result.at, i, that.at, thatInd);
-                    Utils.swap(result.glyphs, i, that.glyphs, thatInd);
-                    result.glyphs.get(i).addAll(this.glyphs.get(thisInd));
+                } else if (Utils.Double.eq(that.at[thatInd], this.at[thisInd])) {
+                    result.swap(i, that, thatInd);
+                    for (int j = 0; j < this.counts[thisInd]; ++j) {
+                        result.add(i, this.glyphs[thisInd][j]);
+                    }
                     thisInd++;
                     thatInd++;
-                } else { // that.at.get(thatInd > this.at.get(thisInd)
-                    Utils.swap(result.at, i, this.at, thisInd);
-                    Utils.swap(result.glyphs, i, this.glyphs, thisInd);
+                } else { // that.at[thatInd] > this.at[thisInd]
+                    result.swap(i, this, thisInd);
                     thisInd++;
                 }
                 result.size++;
             }
             if (LOGGER != null) {
                 LOGGER.log(Level.FINER, "result #{0} of merging #{3} and #{4} has glyphs {1} at {2} (storing in #{3} now)",
-                    new Object[] {
-                        result.hashCode(),
-                        "[" + result.glyphs.stream().map((glyphSet) ->
-                            glyphSet.stream().map(Glyph::toString).collect(
-                                Collectors.joining(", "))
-                        ).collect(Collectors.joining("], [")) + "]",
-                        "[" + result.at.stream().map(Object::toString).collect(
-                                Collectors.joining(", ")) + "]",
-                        this.hashCode(), that.hashCode()
-                    });
+                    new Object[] {result.hashCode(), result.glyphsToString(),
+                        Arrays.toString(result.at), this.hashCode(),
+                        that.hashCode()});
             }
             // swap properties with result
-            List<Double> tmpAt = this.at;
+            double[] tmpAt = this.at;
             this.at = result.at;
             result.at = tmpAt;
-            List<List<Glyph>> tmpGlyphs = this.glyphs;
+            int[] tmpCounts = this.counts;
+            this.counts = result.counts;
+            result.counts = tmpCounts;
+            Glyph[][] tmpGlyphs = this.glyphs;
             this.glyphs = result.glyphs;
             result.glyphs = tmpGlyphs;
             // as we reset result and primitive is copied anyway, no need to swap
@@ -418,31 +541,25 @@ public class FirstMergeRecorder {
             return this;
         }
 
-        public List<Glyph> getGlyphs() {
-            return glyphs.get(0);
-        }
-
         public void reset() {
             resizeIfNeeded();
-            for (int i = 0; i < I.MAX_MERGES_TO_RECORD.get(); ++i) {
-                at.set(i, Double.POSITIVE_INFINITY);
-                glyphs.get(i).clear();
+            Arrays.fill(at, Double.POSITIVE_INFINITY);
+            for (int i = 0; i < glyphs.length; ++i) {
+                Arrays.fill(glyphs[i], 0, counts[i], null);
             }
+            Arrays.fill(counts, 0);
             size = 0;
         }
 
         public void resizeIfNeeded() {
             int ws = I.MAX_MERGES_TO_RECORD.get();
-            int cs = at.size();
-            if (cs < ws) {
+            int cs = at.length;
+            if (cs != ws) {
+                at = Arrays.copyOf(at, ws);
+                counts = Arrays.copyOf(counts, ws);
+                glyphs = Arrays.copyOf(glyphs, ws);
                 for (int i = cs; i < ws; ++i) {
-                    at.add(Double.POSITIVE_INFINITY);
-                    glyphs.add(new ArrayList<>(1));
-                }
-            } else if (cs > ws) {
-                for (int i = cs - 1; i >= ws; --i) {
-                    at.remove(i);
-                    glyphs.remove(i);
+                    glyphs[i] = new Glyph[1];
                 }
             }
         }
@@ -452,21 +569,70 @@ public class FirstMergeRecorder {
                 return null;
             }
 
-            double at = this.at.get(0);
-            Collections.rotate(this.at, -1);
-            List<Glyph> glyphs = this.glyphs.get(0);
-            Collections.rotate(this.glyphs, -1);
+            int k = this.at.length;
+            double at = this.at[0];
+            Glyph[] glyphs = this.glyphs[0];
+            int count = this.counts[0];
+            // rotate all slots, so that the popped slot ends up last
+            System.arraycopy(this.at, 1, this.at, 0, k - 1);
+            System.arraycopy(this.counts, 1, this.counts, 0, k - 1);
+            System.arraycopy(this.glyphs, 1, this.glyphs, 0, k - 1);
+            this.at[k - 1] = at;
+            this.counts[k - 1] = count;
+            this.glyphs[k - 1] = glyphs;
             size--;
 
-            GlyphMerge[] result = new GlyphMerge[glyphs.size()];
-            int i = 0;
-            for (Glyph with : glyphs) {
-                result[i++] = new GlyphMerge(from, with,
+            GlyphMerge[] result = new GlyphMerge[count];
+            for (int i = 0; i < count; ++i) {
+                Glyph with = glyphs[i];
+                result[i] = new GlyphMerge(from, with,
                     (B.ROBUST.get() ? g.intersectAt(from, with) : at));
             }
             return result;
         }
 
+
+        /**
+         * Add a glyph to the given slot.
+         */
+        private void add(int slot, Glyph glyph) {
+            if (counts[slot] == glyphs[slot].length) {
+                glyphs[slot] = Arrays.copyOf(glyphs[slot], 2 * counts[slot]);
+            }
+            glyphs[slot][counts[slot]++] = glyph;
+        }
+
+        private String glyphsToString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < at.length; ++i) {
+                if (i > 0) {
+                    sb.append("], [");
+                }
+                for (int j = 0; j < counts[i]; ++j) {
+                    if (j > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(glyphs[i][j]);
+                }
+            }
+            return sb.append("]").toString();
+        }
+
+        /**
+         * Swap the given slot of this record with a slot of another record.
+         */
+        private void swap(int slot, FirstMerge that, int thatSlot) {
+            double tmpAt = this.at[slot];
+            this.at[slot] = that.at[thatSlot];
+            that.at[thatSlot] = tmpAt;
+            int tmpCount = this.counts[slot];
+            this.counts[slot] = that.counts[thatSlot];
+            that.counts[thatSlot] = tmpCount;
+            Glyph[] tmpGlyphs = this.glyphs[slot];
+            this.glyphs[slot] = that.glyphs[thatSlot];
+            that.glyphs[thatSlot] = tmpGlyphs;
+        }
+
     }
 
 }
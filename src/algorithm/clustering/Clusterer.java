@@ -8,6 +8,7 @@ import datastructure.Glyph;
 import datastructure.HierarchicalClustering;
 import datastructure.QuadTree;
 import datastructure.growfunction.GrowFunction;
+import io.MergeSink;
 
 /**
  * A clusterer is an algorithm that is able to find the agglomerative clustering
@@ -49,7 +50,10 @@ public abstract class Clusterer {
     public static Map<String, Class<? extends Clusterer>> getAll() {
         if (ALL.isEmpty()) {
             for (Class<? extends Clusterer> c : Arrays.asList(
+                    GridClusterer.class,
+                    KineticClusterer.class,
                     NaiveClusterer.class,
+                    PartitionedClusterer.class,
                     QuadTreeClusterer.class)) {
                 try {
                     String name = c.getConstructor(QuadTree.class).newInstance(
@@ -72,6 +76,10 @@ public abstract class Clusterer {
      * Resulting clustering.
      */
     protected HierarchicalClustering result;
+    /**
+     * Sink that merges are written to as they happen, or {@code null}.
+     */
+    protected MergeSink sink;
 
 
     /**
@@ -82,6 +90,7 @@ public abstract class Clusterer {
     public Clusterer(QuadTree tree) {
         this.tree = tree;
         this.result = null;
+        this.sink = null;
     }
 
 
@@ -124,6 +133,24 @@ public abstract class Clusterer {
         return (this.tree == that.tree);
     }
 
+    /**
+     * Have merges be written to the given sink as they happen, rather than
+     * be kept in a {@link HierarchicalClustering}. Clusterers that support
+     * this do not have a {@link #getClustering() clustering} after
+     * {@link #cluster(GrowFunction, boolean, boolean) clustering}; other
+     * clusterers ignore the sink. Attaching a sink forgets any clustering
+     * obtained so far, so that only the merges of the next run end up in it.
+     *
+     * @param sink Sink to write merges to, or {@code null} to build a
+     *            {@link HierarchicalClustering} again.
+     */
+    public void setSink(MergeSink sink) {
+        this.sink = sink;
+        if (sink != null) {
+            reset();
+        }
+    }
+
     /**
      * Forget about any clustering obtained so far.
      */
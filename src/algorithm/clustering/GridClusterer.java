@@ -0,0 +1,654 @@
+package algorithm.clustering;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import datastructure.Glyph;
+import datastructure.HierarchicalClustering;
+import datastructure.LongHashMap;
+import datastructure.QuadTree;
+import datastructure.events.GlyphMerge;
+import datastructure.events.OutOfCell.Side;
+import datastructure.growfunction.GrowFunction;
+import utils.Constants.B;
+import utils.Utils;
+import utils.Utils.Stats;
+import utils.Utils.Timers;
+
+/**
+ * The grid clusterer finds merges by keeping glyphs in a grid of square cells,
+ * rather than in a {@link QuadTree}. Only cells that are covered by a glyph
+ * exist; they are kept in a hash map keyed on their column and row, so the
+ * grid has no bounds and empty cells take no space.
+ *
+ * Every glyph is stored in all cells that its bounding box covers. When a
+ * growing glyph crosses a grid line, it is added to the row or column of cells
+ * that it now covers as well. These crossings take the place of the out of
+ * cell events of the {@link QuadTreeClusterer}. Whenever a glyph is added to a
+ * cell, a merge is recorded with every glyph in that cell that it did not
+ * share a cell with yet. Two glyphs that touch share the cell of the point
+ * where they touch, so no merge is missed.
+ *
+ * As glyphs grow, they cover ever more cells. Whenever glyphs cover more than
+ * {@link #MAX_COVER} cells on average, the grid is rebuilt with cells that are
+ * twice as wide. Clustering thus moves through a hierarchy of ever coarser
+ * grids. This works best when glyphs are spread evenly, so that all cells hold
+ * about as many glyphs.
+ *
+ * A merged glyph that overlaps other glyphs immediately absorbs them, in the
+ * same way as in the {@link QuadTreeClusterer}.
+ */
+public class GridClusterer extends Clusterer {
+
+    private static final Logger LOGGER = (B.LOGGING_ENABLED.get() ?
+            Logger.getLogger(GridClusterer.class.getName()) : null);
+
+    /**
+     * Average number of glyphs per cell in the initial grid.
+     */
+    private static final int INITIAL_LOAD = 4;
+    /**
+     * Average number of cells that alive glyphs may cover before the grid is
+     * rebuilt with coarser cells.
+     */
+    private static final int MAX_COVER = 9;
+
+
+    /**
+     * Cells of the grid, keyed on {@link #key(int, int) column and row}. Each
+     * holds the footprints of the glyphs covering it, and possibly footprints
+     * of glyphs that have perished since.
+     */
+    private LongHashMap<List<Footprint>> cells;
+    /**
+     * Width and height of cells.
+     */
+    private double cellSize;
+    /**
+     * Total number of cells covered by alive glyphs, counting a cell once for
+     * every glyph that covers it.
+     */
+    private long covered;
+    /**
+     * Number of grid lines crossed by glyphs during the last clustering.
+     */
+    private int crossings;
+    /**
+     * Upcoming crossings of grid lines by glyphs, in order.
+     */
+    private PriorityQueue<Crossing> crossingQueue;
+    /**
+     * Footprints of all alive glyphs.
+     */
+    private Map<Glyph, Footprint> footprints;
+    /**
+     * Number of times the grid has been rebuilt. Crossings computed for an
+     * earlier grid are ignored.
+     */
+    private int generation;
+    /**
+     * Position of the corner of the cell in column 0 and row 0.
+     */
+    private double originX;
+    private double originY;
+    /**
+     * Number of times the grid was rebuilt during the last clustering.
+     */
+    private int rebuilds;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public GridClusterer(QuadTree tree) {
+        super(tree);
+    }
+
+
+    @Override
+    public Clusterer cluster(GrowFunction g, boolean includeOutOfCell,
+            boolean step) {
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "using the {0} grow function", g.getName());
+        }
+        if (B.TIMERS_ENABLED.get()) {
+            Timers.start("clustering");
+        }
+
+        // create a result for each glyph, and a map to find them
+        List<Glyph> glyphs = new ArrayList<>();
+        for (QuadTree leaf : tree.getLeaves()) {
+            for (Glyph glyph : leaf.getGlyphs()) {
+                if (!glyph.isAlive()) {
+                    if (LOGGER != null) {
+                        LOGGER.log(Level.SEVERE, "unexpected dead glyph in input");
+                    }
+                    return null;
+                }
+                glyphs.add(glyph);
+            }
+        }
+        int n = glyphs.size();
+        Map<Glyph, HierarchicalClustering> map = new HashMap<>(2 * n);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Glyph glyph : glyphs) {
+            map.put(glyph, new HierarchicalClustering(glyph, 0));
+            minX = Math.min(minX, glyph.getX());
+            minY = Math.min(minY, glyph.getY());
+            maxX = Math.max(maxX, glyph.getX());
+            maxY = Math.max(maxY, glyph.getY());
+        }
+
+        // size cells such that they hold a few glyphs each on average, and
+        // put every glyph in the cell that it is in at time 0
+        originX = minX;
+        originY = minY;
+        cellSize = Math.sqrt((maxX - minX) * (maxY - minY) * INITIAL_LOAD / n);
+        if (!(cellSize > 0)) {
+            // all glyphs are on a line, or there are none
+            cellSize = Math.max(1, Math.max(maxX - minX, maxY - minY) / n);
+        }
+        cells = new LongHashMap<>(2 * n);
+        covered = 0;
+        crossings = 0;
+        crossingQueue = new PriorityQueue<>();
+        footprints = new LinkedHashMap<>(2 * n);
+        generation = 0;
+        rebuilds = 0;
+        PriorityQueue<GlyphMerge> merges = new PriorityQueue<>();
+        for (Glyph glyph : glyphs) {
+            place(g, new Footprint(glyph), 0, merges);
+        }
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "initialized {0} glyphs in {1} cells of "
+                    + "size {2}", new Object[] {n, cells.size(), cellSize});
+        }
+
+        // handle crossings and merges in order, until only a single glyph
+        // remains; crossings go first on ties, as they may find merges
+        int numAlive = n;
+        PriorityQueue<GlyphMerge> nestedMerges = new PriorityQueue<>();
+        while (numAlive > 1) {
+            Crossing crossing = crossingQueue.peek();
+            GlyphMerge merge = merges.peek();
+            if (crossing != null && (merge == null || crossing.at <= merge.getAt())) {
+                crossingQueue.poll();
+                if (crossing.generation != generation ||
+                        !crossing.footprint.glyph.isAlive()) {
+                    continue;
+                }
+                cross(g, crossing, merges);
+                coarsen(g, null, crossing.at, merges);
+            } else if (merge != null) {
+                merges.poll();
+                if (!merge.getGlyphs()[0].isAlive() ||
+                        !merge.getGlyphs()[1].isAlive()) {
+                    continue;
+                }
+                numAlive -= handleGlyphMerge(g, merge, map, merges,
+                        nestedMerges) - 1;
+                if (step) {
+                    step();
+                }
+            } else {
+                // cannot happen: all glyphs touch eventually
+                throw new RuntimeException("no more crossings, but "
+                        + numAlive + " glyphs remain");
+            }
+        }
+
+        Stats.record("grid crossings", crossings);
+        Stats.record("grid rebuilds", rebuilds);
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "{0} grid lines crossed, grid rebuilt {1} "
+                    + "times", new Object[] {crossings, rebuilds});
+        }
+        cells = null;
+        crossingQueue = null;
+        footprints = null;
+        if (B.TIMERS_ENABLED.get()) {
+            Timers.stop("clustering");
+            Timers.logAll(LOGGER);
+        }
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return "Grid Clusterer";
+    }
+
+
+    /**
+     * Returns the key of the cell in the given column and row.
+     */
+    private static long key(int col, int row) {
+        return ((long) col << 32) | (row & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * Rebuild the grid with ever coarser cells for as long as alive glyphs
+     * cover more than {@link #MAX_COVER} cells on average at the given time.
+     *
+     * @param fp Footprint of a glyph that is about to be placed, which is
+     *            taken into account as well, or {@code null}.
+     * @return The given footprint, covering cells of the resulting grid.
+     */
+    private Footprint coarsen(GrowFunction g, Footprint fp, double at,
+            PriorityQueue<GlyphMerge> merges) {
+        int n = footprints.size();
+        if (fp != null) {
+            cover(g, fp, at);
+            n++;
+        }
+        while (n > 1 && covered + (fp == null ? 0 : fp.size()) >
+                (long) MAX_COVER * n) {
+            cellSize *= 2;
+            rebuild(g, at, merges);
+            rebuilds++;
+            if (fp != null) {
+                cover(g, fp, at);
+            }
+        }
+        return fp;
+    }
+
+    /**
+     * Set the cells that the given footprint covers to those that the bounding
+     * box of its glyph intersects at the given time.
+     */
+    private void cover(GrowFunction g, Footprint fp, double at) {
+        fp.c0 = fp.c1 = (int) Math.floor((fp.glyph.getX() - originX) / cellSize);
+        fp.r0 = fp.r1 = (int) Math.floor((fp.glyph.getY() - originY) / cellSize);
+        for (Side side : Side.values()) {
+            while (crossAt(g, fp, side) <= at) {
+                fp.extend(side);
+            }
+        }
+    }
+
+    /**
+     * Add the given footprint to the cell in the given column and row, and
+     * record merges with the glyphs in that cell for which this is the first
+     * cell that they share, as determined by the given check.
+     */
+    private void enter(GrowFunction g, Footprint fp, int col, int row,
+            FirstShared firstShared, PriorityQueue<GlyphMerge> merges) {
+        long key = key(col, row);
+        List<Footprint> cell = cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>(INITIAL_LOAD);
+            cells.put(key, cell);
+        }
+        // record merges, and forget about glyphs that perished on the way
+        int j = 0;
+        for (int i = 0; i < cell.size(); ++i) {
+            Footprint other = cell.get(i);
+            if (other.glyph.isAlive()) {
+                cell.set(j++, other);
+                if (firstShared.test(fp, other, col, row)) {
+                    merges.add(new GlyphMerge(fp.glyph, other.glyph, g));
+                }
+            }
+        }
+        while (cell.size() > j) {
+            cell.remove(cell.size() - 1);
+        }
+        cell.add(fp);
+        covered++;
+    }
+
+    /**
+     * Returns when the glyph of the given footprint reaches the grid line on
+     * the given side of the cells it covers.
+     */
+    private double crossAt(GrowFunction g, Footprint fp, Side side) {
+        double x = fp.glyph.getX();
+        double y = fp.glyph.getY();
+        switch (side) {
+        case TOP:
+            y = originY + fp.r0 * cellSize;
+            break;
+        case RIGHT:
+            x = originX + (fp.c1 + 1) * cellSize;
+            break;
+        case BOTTOM:
+            y = originY + (fp.r1 + 1) * cellSize;
+            break;
+        case LEFT:
+            x = originX + fp.c0 * cellSize;
+            break;
+        }
+        return g.intersectAt(new Rectangle2D.Double(x, y, 0, 0), fp.glyph);
+    }
+
+    /**
+     * Handle the given crossing: add its glyph to the cells that it covers
+     * now, and schedule the next crossing on the same side.
+     */
+    private void cross(GrowFunction g, Crossing crossing,
+            PriorityQueue<GlyphMerge> merges) {
+        crossings++;
+        Footprint fp = crossing.footprint;
+        // glyphs that shared a cell with the glyph before have a merge already,
+        // others have it recorded in the first new cell that they share
+        int c0 = fp.c0, c1 = fp.c1, r0 = fp.r0, r1 = fp.r1;
+        fp.extend(crossing.side);
+        if (crossing.side == Side.LEFT || crossing.side == Side.RIGHT) {
+            int col = (crossing.side == Side.LEFT ? fp.c0 : fp.c1);
+            for (int row = fp.r0; row <= fp.r1; ++row) {
+                enter(g, fp, col, row, (a, b, c, r) ->
+                        !b.intersects(c0, c1, r0, r1) && r == Math.max(r0, b.r0),
+                        merges);
+            }
+        } else {
+            int row = (crossing.side == Side.TOP ? fp.r0 : fp.r1);
+            for (int col = fp.c0; col <= fp.c1; ++col) {
+                enter(g, fp, col, row, (a, b, c, r) ->
+                        !b.intersects(c0, c1, r0, r1) && c == Math.max(c0, b.c0),
+                        merges);
+            }
+        }
+        schedule(g, fp, crossing.side, crossing.at);
+    }
+
+    /**
+     * Add merges of the glyph of the given footprint with all glyphs that
+     * overlap it at the given time to the given queue. This is the equivalent
+     * of {@link QuadTreeClusterer}'s check for overlap after a merge.
+     *
+     * @param fp Footprint covering the cells that the glyph covers at the
+     *            given time.
+     * @return Whether any overlapping glyph was found.
+     */
+    private boolean findOverlap(GrowFunction g, Footprint fp, double at,
+            PriorityQueue<GlyphMerge> addTo) {
+        Glyph with = fp.glyph;
+        boolean foundOverlap = false;
+        double bAt; // before `at`, used to store time/zoom level of found merges
+        for (int col = fp.c0; col <= fp.c1; ++col) {
+            for (int row = fp.r0; row <= fp.r1; ++row) {
+                List<Footprint> cell = cells.get(key(col, row));
+                if (cell == null) {
+                    continue;
+                }
+                for (Footprint other : cell) {
+                    if (other.glyph.isAlive() &&
+                            (bAt = g.intersectAt(with, other.glyph)) <= at) {
+                        foundOverlap = true;
+                        addTo.add(new GlyphMerge(null, other.glyph, bAt));
+                    }
+                }
+            }
+        }
+        return foundOverlap;
+    }
+
+    /**
+     * Perform the given merge and all merges it causes, like
+     * {@link QuadTreeClusterer} does, and place the merged glyph in the grid.
+     * The grid is coarsened first when the merged glyph would make glyphs
+     * cover too many cells.
+     *
+     * @return The number of glyphs that perished.
+     */
+    private int handleGlyphMerge(GrowFunction g, GlyphMerge m,
+            Map<Glyph, HierarchicalClustering> map,
+            PriorityQueue<GlyphMerge> merges,
+            PriorityQueue<GlyphMerge> nestedMerges) {
+        nestedMerges.add(m);
+        Glyph merged = null;
+        HierarchicalClustering mergedHC = null;
+        double mergedAt = m.getAt();
+        int perished = 0;
+        do {
+            nestedMerge: while (!nestedMerges.isEmpty()) {
+                m = nestedMerges.poll();
+
+                // check that all glyphs in the merge are still alive
+                for (Glyph glyph : m.getGlyphs()) {
+                    if (glyph != null && !glyph.isAlive()) {
+                        continue nestedMerge;
+                    }
+                }
+
+                // create a merged glyph, update clustering
+                if (mergedHC == null) {
+                    merged = new Glyph(m.getGlyphs());
+                    mergedHC = new HierarchicalClustering(merged, mergedAt,
+                            Utils.map(m.getGlyphs(), map,
+                                new HierarchicalClustering[2]));
+                } else {
+                    mergedHC.alsoCreatedFrom(map.get(m.getGlyphs()[1]));
+                    merged = new Glyph(merged, m.getGlyphs()[1]);
+                    mergedHC.setGlyph(merged);
+                }
+
+                // mark merged glyphs as dead; they are removed from cells
+                // lazily, the next time those cells are visited
+                for (Glyph glyph : m.getGlyphs()) {
+                    if (glyph == null || !glyph.isAlive()) {
+                        continue;
+                    }
+                    glyph.perish();
+                    perished++;
+                    covered -= footprints.remove(glyph).size();
+                }
+            }
+        } while (findOverlap(g, coarsen(g, new Footprint(merged), mergedAt,
+                merges), mergedAt, nestedMerges));
+
+        // the merged glyph is alive and kicking
+        place(g, new Footprint(merged), mergedAt, merges);
+        merged.participate();
+
+        // eventually, the last merged glyph is the root
+        map.put(merged, mergedHC);
+        result = mergedHC;
+        return perished;
+    }
+
+    /**
+     * Add the glyph of the given footprint to all cells it covers at the given
+     * time, record merges with all glyphs it shares a cell with, and schedule
+     * its crossings of grid lines.
+     */
+    private void place(GrowFunction g, Footprint fp, double at,
+            PriorityQueue<GlyphMerge> merges) {
+        place(g, fp, at, (a, b, c, r) ->
+                c == Math.max(a.c0, b.c0) && r == Math.max(a.r0, b.r0), merges);
+    }
+
+    /**
+     * Add the glyph of the given footprint to all cells it covers at the given
+     * time, record merges with the glyphs for which the given check accepts a
+     * cell, and schedule its crossings of grid lines.
+     */
+    private void place(GrowFunction g, Footprint fp, double at,
+            FirstShared firstShared, PriorityQueue<GlyphMerge> merges) {
+        cover(g, fp, at);
+        footprints.put(fp.glyph, fp);
+        for (int col = fp.c0; col <= fp.c1; ++col) {
+            for (int row = fp.r0; row <= fp.r1; ++row) {
+                enter(g, fp, col, row, firstShared, merges);
+            }
+        }
+        for (Side side : Side.values()) {
+            schedule(g, fp, side, at);
+        }
+    }
+
+    /**
+     * Put all alive glyphs in a new grid with the current {@link #cellSize},
+     * as they are at the given time.
+     *
+     * Glyphs that shared a cell in the old grid have a merge queued already,
+     * which is still pending because both glyphs are alive. Merges are only
+     * recorded for glyphs that share a cell for the first time.
+     */
+    private void rebuild(GrowFunction g, double at,
+            PriorityQueue<GlyphMerge> merges) {
+        generation++;
+        cells.clear();
+        covered = 0;
+        List<Footprint> alive = new ArrayList<>(footprints.values());
+        footprints.clear();
+        for (Footprint old : alive) {
+            Footprint fp = new Footprint(old.glyph);
+            fp.previous = old;
+            place(g, fp, at, (a, b, c, r) ->
+                    c == Math.max(a.c0, b.c0) && r == Math.max(a.r0, b.r0) &&
+                    !a.previous.intersects(b.previous.c0, b.previous.c1,
+                        b.previous.r0, b.previous.r1), merges);
+        }
+        for (Footprint fp : footprints.values()) {
+            fp.previous = null;
+        }
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINER, "rebuilt grid with {0} cells of size {1} "
+                    + "at {2}", new Object[] {cells.size(), cellSize, at});
+        }
+    }
+
+    /**
+     * Schedule the next crossing of the given footprint on the given side,
+     * which happens no earlier than the given time.
+     */
+    private void schedule(GrowFunction g, Footprint fp, Side side, double at) {
+        crossingQueue.add(new Crossing(fp, side,
+                Math.max(at, crossAt(g, fp, side)), generation));
+    }
+
+    private void step() {
+        try {
+            System.in.read();
+        } catch (IOException e) {
+            // Well, that's weird. Just continue then.
+        }
+    }
+
+
+    /**
+     * Moment at which a glyph reaches a grid line, and starts to cover the
+     * cells on the other side of it.
+     */
+    private static class Crossing implements Comparable<Crossing> {
+
+        private final double at;
+        private final Footprint footprint;
+        /**
+         * {@link GridClusterer#generation Generation} of the grid this
+         * crossing was computed for.
+         */
+        private final int generation;
+        private final Side side;
+
+
+        public Crossing(Footprint footprint, Side side, double at,
+                int generation) {
+            this.at = at;
+            this.footprint = footprint;
+            this.generation = generation;
+            this.side = side;
+        }
+
+
+        @Override
+        public int compareTo(Crossing that) {
+            return Double.compare(this.at, that.at);
+        }
+
+    }
+
+    /**
+     * Check whether a cell is the first cell that two footprints share, and
+     * thus the cell in which their merge is to be recorded.
+     */
+    @FunctionalInterface
+    private interface FirstShared {
+
+        /**
+         * @param a Footprint that is being added to the cell.
+         * @param b Footprint that is in the cell already.
+         * @param col Column of the cell.
+         * @param row Row of the cell.
+         */
+        public boolean test(Footprint a, Footprint b, int col, int row);
+
+    }
+
+    /**
+     * Rectangle of cells that the bounding box of a glyph intersects, from
+     * column {@code c0} up to and including {@code c1}, and similar for rows.
+     */
+    private static class Footprint {
+
+        private final Glyph glyph;
+        private int c0;
+        private int c1;
+        private int r0;
+        private int r1;
+        /**
+         * Footprint of the same glyph in the grid before it was rebuilt. Only
+         * set while the grid is {@link GridClusterer#rebuild rebuilt}.
+         */
+        private Footprint previous;
+
+
+        public Footprint(Glyph glyph) {
+            this.glyph = glyph;
+            this.previous = null;
+        }
+
+
+        /**
+         * Cover an additional column or row of cells on the given side.
+         */
+        public void extend(Side side) {
+            switch (side) {
+            case TOP:
+                r0--;
+                break;
+            case RIGHT:
+                c1++;
+                break;
+            case BOTTOM:
+                r1++;
+                break;
+            case LEFT:
+                c0--;
+                break;
+            }
+        }
+
+        /**
+         * Returns whether this footprint shares a cell with the given
+         * rectangle of cells.
+         */
+        public boolean intersects(int c0, int c1, int r0, int r1) {
+            return (this.c0 <= c1 && c0 <= this.c1 &&
+                    this.r0 <= r1 && r0 <= this.r1);
+        }
+
+        /**
+         * Returns the number of cells covered.
+         */
+        public long size() {
+            return (long) (c1 - c0 + 1) * (r1 - r0 + 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,514 @@
+package algorithm.clustering;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import datastructure.Glyph;
+import datastructure.HierarchicalClustering;
+import datastructure.QuadTree;
+import datastructure.events.GlyphMerge;
+import datastructure.growfunction.GrowFunction;
+import datastructure.growfunction.shape.SquaresGrowShape;
+import datastructure.growfunction.speed.LinearGrowSpeed;
+import datastructure.queues.AddressableHeap;
+import utils.Constants.B;
+import utils.Utils;
+import utils.Utils.Stats;
+import utils.Utils.Timers;
+
+/**
+ * The kinetic clusterer finds merges by keeping the borders of all glyphs
+ * sorted along both axes, rather than by keeping glyphs in a {@link QuadTree}.
+ *
+ * Two squares touch exactly when their projections on both axes overlap. When
+ * glyphs grow linearly, every border moves at constant speed, so the sorted
+ * order of borders along an axis only changes when two adjacent borders swap.
+ * For every pair of adjacent borders, a certificate records when they will
+ * swap. When the lower border of one glyph passes the upper border of another,
+ * their projections start to overlap, and the glyphs touch at that moment if
+ * their projections on the other axis already overlap. Merges are thus found
+ * by handling certificate failures in order, without out of cell events.
+ *
+ * The resulting clustering is the same as that of the {@link QuadTreeClusterer}:
+ * a merged glyph that overlaps other glyphs immediately absorbs them, in the
+ * same way. Only {@link #supports(GrowFunction) squares that grow linearly},
+ * without borders or compression, are supported.
+ */
+public class KineticClusterer extends Clusterer {
+
+    private static final Logger LOGGER = (B.LOGGING_ENABLED.get() ?
+            Logger.getLogger(KineticClusterer.class.getName()) : null);
+
+
+    /**
+     * Returns whether the given grow function can be used by this clusterer.
+     * That is the case for squares that grow linearly in their weight, when
+     * glyphs are not compressed and do not have borders.
+     *
+     * @param g Grow function to check.
+     */
+    public static boolean supports(GrowFunction g) {
+        return (g.getShape().getClass() == SquaresGrowShape.class &&
+                g.getSpeed().getClass() == LinearGrowSpeed.class &&
+                g.canIntersectInBatch());
+    }
+
+
+    /**
+     * Certificates of adjacent borders, ordered on when they fail.
+     */
+    private AddressableHeap<Border> certificates;
+    /**
+     * Number of certificates that failed during the last clustering.
+     */
+    private int failures;
+    /**
+     * Border that is close to the most recent change, for both axes. Searching
+     * for a position in the sorted order of borders starts here.
+     */
+    private Border[] hints;
+    /**
+     * Largest weight of any glyph so far. Glyphs cannot be wider than this.
+     */
+    private double maxWeight;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public KineticClusterer(QuadTree tree) {
+        super(tree);
+    }
+
+
+    @Override
+    public Clusterer cluster(GrowFunction g, boolean includeOutOfCell,
+            boolean step) {
+        if (!supports(g)) {
+            throw new IllegalArgumentException("the kinetic clusterer only "
+                    + "supports linearly growing squares, not " + g.getName());
+        }
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "using the {0} grow function", g.getName());
+        }
+        if (B.TIMERS_ENABLED.get()) {
+            Timers.start("clustering");
+        }
+
+        // create a result for each glyph, and a map to find them
+        List<Glyph> glyphs = new ArrayList<>();
+        for (QuadTree leaf : tree.getLeaves()) {
+            for (Glyph glyph : leaf.getGlyphs()) {
+                if (!glyph.isAlive()) {
+                    if (LOGGER != null) {
+                        LOGGER.log(Level.SEVERE, "unexpected dead glyph in input");
+                    }
+                    return null;
+                }
+                glyphs.add(glyph);
+            }
+        }
+        int n = glyphs.size();
+        Map<Glyph, HierarchicalClustering> map = new HashMap<>(2 * n);
+        Map<Glyph, Border[]> borders = new HashMap<>(2 * n);
+        for (Glyph glyph : glyphs) {
+            map.put(glyph, new HierarchicalClustering(glyph, 0));
+        }
+
+        // sort borders of all glyphs along both axes, as they are just after
+        // time 0, and create certificates for all adjacent borders
+        certificates = new AddressableHeap<>(4 * n);
+        failures = 0;
+        hints = new Border[2];
+        maxWeight = 0;
+        Border[][] sorted = new Border[2][2 * n];
+        for (int i = 0; i < n; ++i) {
+            Border[] bs = createBorders(g, glyphs.get(i));
+            borders.put(glyphs.get(i), bs);
+            for (int axis = 0; axis < 2; ++axis) {
+                sorted[axis][2 * i] = bs[2 * axis];
+                sorted[axis][2 * i + 1] = bs[2 * axis + 1];
+            }
+        }
+        for (int axis = 0; axis < 2; ++axis) {
+            Arrays.sort(sorted[axis], Comparator.comparingDouble((Border b) -> b.p)
+                    .thenComparingDouble((Border b) -> b.v));
+            Border head = new Border(null, axis, true, Double.NEGATIVE_INFINITY, 0);
+            Border tail = new Border(null, axis, false, Double.POSITIVE_INFINITY, 0);
+            Border prev = head;
+            for (Border b : sorted[axis]) {
+                prev.next = b;
+                b.prev = prev;
+                prev = b;
+            }
+            prev.next = tail;
+            tail.prev = prev;
+            hints[axis] = head;
+            for (Border b = head.next; b != tail; b = b.next) {
+                certify(b, 0);
+            }
+        }
+
+        // glyphs at the same position overlap right away
+        PriorityQueue<GlyphMerge> merges = new PriorityQueue<>();
+        Glyph[] byX = glyphs.toArray(new Glyph[n]);
+        Arrays.sort(byX, Comparator.comparingDouble(Glyph::getX));
+        for (int i = 0; i < n; ++i) {
+            for (int j = i + 1; j < n && byX[j].getX() - byX[i].getX() <= Utils.EPS; ++j) {
+                if (byX[i].hasSamePositionAs(byX[j])) {
+                    merges.add(new GlyphMerge(byX[i], byX[j], g));
+                }
+            }
+        }
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "initialized {0} glyphs and {1} certificates",
+                    new Object[] {n, certificates.size()});
+        }
+
+        // handle certificate failures and merges in order, until only a
+        // single glyph remains
+        int numAlive = n;
+        PriorityQueue<GlyphMerge> nestedMerges = new PriorityQueue<>();
+        while (numAlive > 1) {
+            Border failed = certificates.peek();
+            GlyphMerge merge = merges.peek();
+            if (merge != null && (failed == null || merge.getAt() <= failed.failAt)) {
+                merges.poll();
+                if (!merge.getGlyphs()[0].isAlive() ||
+                        !merge.getGlyphs()[1].isAlive()) {
+                    continue;
+                }
+                numAlive -= handleGlyphMerge(g, merge, map, borders,
+                        nestedMerges) - 1;
+                if (step) {
+                    step();
+                }
+            } else if (failed != null) {
+                certificates.poll();
+                failed.handle = -1;
+                swap(g, failed, merges);
+            } else {
+                // cannot happen: all glyphs touch eventually
+                throw new RuntimeException("no more certificates, but "
+                        + numAlive + " glyphs remain");
+            }
+        }
+
+        Stats.record("kinetic certificate failures", failures);
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "{0} certificates failed", failures);
+        }
+        certificates = null;
+        hints = null;
+        if (B.TIMERS_ENABLED.get()) {
+            Timers.stop("clustering");
+            Timers.logAll(LOGGER);
+        }
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return "Kinetic Clusterer";
+    }
+
+
+    /**
+     * Recompute when the given border is passed by the border after it, and
+     * update its certificate accordingly.
+     *
+     * @param b Border to recompute the certificate of.
+     * @param at Current time. Certificates never fail before this.
+     */
+    private void certify(Border b, double at) {
+        Border next = b.next;
+        if (b.glyph == null || next.glyph == null || b.v <= next.v) {
+            b.failAt = Double.POSITIVE_INFINITY;
+            if (b.handle >= 0) {
+                certificates.remove(b.handle);
+                b.handle = -1;
+            }
+            return;
+        }
+        b.failAt = Math.max(at, (next.p - b.p) / (b.v - next.v));
+        if (b.handle < 0) {
+            b.handle = certificates.add(b);
+        } else {
+            certificates.update(b.handle, b);
+        }
+    }
+
+    /**
+     * Create the four borders of the given glyph: lower and upper along the
+     * x-axis, followed by lower and upper along the y-axis.
+     */
+    private Border[] createBorders(GrowFunction g, Glyph glyph) {
+        double w = g.weight(glyph);
+        maxWeight = Math.max(maxWeight, w);
+        return new Border[] {
+            new Border(glyph, 0, true, glyph.getX(), -w),
+            new Border(glyph, 0, false, glyph.getX(), w),
+            new Border(glyph, 1, true, glyph.getY(), -w),
+            new Border(glyph, 1, false, glyph.getY(), w)
+        };
+    }
+
+    /**
+     * Returns the first border along the given axis that is at or after the
+     * given position at the given time. This may be the tail of the list.
+     */
+    private Border find(int axis, double position, double at) {
+        Border b = hints[axis];
+        while (b.prev != null && b.prev.position(at) >= position) {
+            b = b.prev;
+        }
+        while (b.position(at) < position) {
+            b = b.next;
+        }
+        return b;
+    }
+
+    /**
+     * Add merges of the given glyph with all glyphs that overlap it at the
+     * given time to the given queue. This is the equivalent of
+     * {@link QuadTreeClusterer}'s check for overlap after a merge.
+     *
+     * @return Whether any overlapping glyph was found.
+     */
+    private boolean findOverlap(GrowFunction g, Glyph with, double at,
+            PriorityQueue<GlyphMerge> addTo) {
+        // a glyph can only overlap when its lower border is at most the
+        // widest glyph width before the lower border of `with`
+        double t = Math.max(0, at);
+        double w = g.weight(with);
+        double from = with.getX() - (w + 2 * maxWeight) * t - Utils.EPS;
+        double to = with.getX() + w * t + Utils.EPS;
+        boolean foundOverlap = false;
+        double bAt; // before `at`, used to store time/zoom level of found merges
+        for (Border b = find(0, from, t); b.position(t) <= to; b = b.next) {
+            if (b.lower && (bAt = g.intersectAt(with, b.glyph)) <= at) {
+                foundOverlap = true;
+                addTo.add(new GlyphMerge(null, b.glyph, bAt));
+            }
+        }
+        return foundOverlap;
+    }
+
+    /**
+     * Perform the given merge and all merges it causes, like
+     * {@link QuadTreeClusterer} does, and insert the merged glyph.
+     *
+     * @return The number of glyphs that perished.
+     */
+    private int handleGlyphMerge(GrowFunction g, GlyphMerge m,
+            Map<Glyph, HierarchicalClustering> map, Map<Glyph, Border[]> borders,
+            PriorityQueue<GlyphMerge> nestedMerges) {
+        nestedMerges.add(m);
+        Glyph merged = null;
+        HierarchicalClustering mergedHC = null;
+        double mergedAt = m.getAt();
+        int perished = 0;
+        do {
+            nestedMerge: while (!nestedMerges.isEmpty()) {
+                m = nestedMerges.poll();
+
+                // check that all glyphs in the merge are still alive
+                for (Glyph glyph : m.getGlyphs()) {
+                    if (glyph != null && !glyph.isAlive()) {
+                        continue nestedMerge;
+                    }
+                }
+
+                // create a merged glyph, update clustering
+                if (mergedHC == null) {
+                    merged = new Glyph(m.getGlyphs());
+                    mergedHC = new HierarchicalClustering(merged, mergedAt,
+                            Utils.map(m.getGlyphs(), map,
+                                new HierarchicalClustering[2]));
+                } else {
+                    mergedHC.alsoCreatedFrom(map.get(m.getGlyphs()[1]));
+                    merged = new Glyph(merged, m.getGlyphs()[1]);
+                    mergedHC.setGlyph(merged);
+                }
+
+                // mark merged glyphs as dead, forget about their borders
+                for (Glyph glyph : m.getGlyphs()) {
+                    if (glyph == null || !glyph.isAlive()) {
+                        continue;
+                    }
+                    glyph.perish();
+                    perished++;
+                    for (Border b : borders.remove(glyph)) {
+                        remove(b, mergedAt);
+                    }
+                }
+            }
+        } while (findOverlap(g, merged, mergedAt, nestedMerges));
+
+        // the merged glyph is alive and kicking
+        Border[] bs = createBorders(g, merged);
+        borders.put(merged, bs);
+        for (Border b : bs) {
+            insert(b, mergedAt);
+        }
+        merged.participate();
+
+        // eventually, the last merged glyph is the root
+        map.put(merged, mergedHC);
+        result = mergedHC;
+        return perished;
+    }
+
+    /**
+     * Insert the given border in its list, at its position at the given time.
+     */
+    private void insert(Border b, double at) {
+        double t = Math.max(0, at);
+        double position = b.position(t);
+        Border next = find(b.axis, position, t);
+        while (next.position(t) == position && next.v < b.v) {
+            next = next.next;
+        }
+        Border prev = next.prev;
+        prev.next = b;
+        b.prev = prev;
+        b.next = next;
+        next.prev = b;
+        hints[b.axis] = b;
+        certify(prev, t);
+        certify(b, t);
+    }
+
+    /**
+     * Remove the given border from its list.
+     */
+    private void remove(Border b, double at) {
+        Border prev = b.prev;
+        prev.next = b.next;
+        b.next.prev = prev;
+        if (b.handle >= 0) {
+            certificates.remove(b.handle);
+            b.handle = -1;
+        }
+        hints[b.axis] = prev;
+        certify(prev, Math.max(0, at));
+    }
+
+    private void step() {
+        try {
+            System.in.read();
+        } catch (IOException e) {
+            // Well, that's weird. Just continue then.
+        }
+    }
+
+    /**
+     * Swap the given border with the one after it, which has just passed it.
+     * When that starts an overlap of two glyphs along one axis, while they
+     * overlap along the other axis already, a merge of them is recorded.
+     */
+    private void swap(GrowFunction g, Border b, PriorityQueue<GlyphMerge> merges) {
+        failures++;
+        Border next = b.next;
+        Border prev = b.prev;
+        prev.next = next;
+        next.prev = prev;
+        next.next.prev = b;
+        b.next = next.next;
+        next.next = b;
+        b.prev = next;
+        hints[b.axis] = b;
+        double at = b.failAt;
+        certify(prev, at);
+        certify(next, at);
+        certify(b, at);
+
+        // the lower border of `next` passed the upper border of `b`
+        if (!b.lower && next.lower) {
+            double dx = Math.abs(b.glyph.getX() - next.glyph.getX());
+            double dy = Math.abs(b.glyph.getY() - next.glyph.getY());
+            // exactly one of the axes starts overlapping last; on ties that
+            // is taken to be the x-axis
+            if (b.axis == 0 ? dy <= dx : dx < dy) {
+                merges.add(new GlyphMerge(b.glyph, next.glyph, g));
+            }
+        }
+    }
+
+
+    /**
+     * Lower or upper border of a glyph along one axis. Borders are kept in a
+     * doubly linked list per axis, sorted on their position, with a head and
+     * tail that have no glyph. Every border also is the certificate for the
+     * order of itself and the border after it.
+     */
+    private static class Border implements Comparable<Border> {
+
+        /**
+         * 0 for the x-axis, 1 for the y-axis.
+         */
+        private final int axis;
+        /**
+         * Glyph that this is a border of, or {@code null} for head and tail.
+         */
+        private final Glyph glyph;
+        /**
+         * Whether this is the lower border of {@link #glyph}.
+         */
+        private final boolean lower;
+        /**
+         * Position at time 0, which is the center of the glyph.
+         */
+        private final double p;
+        /**
+         * Speed at which the border moves; negative for lower borders.
+         */
+        private final double v;
+
+        /**
+         * Time at which {@link #next} passes this border, or infinity.
+         */
+        private double failAt;
+        /**
+         * Handle of this certificate in the heap, or -1 when not in it.
+         */
+        private int handle;
+        private Border next;
+        private Border prev;
+
+
+        public Border(Glyph glyph, int axis, boolean lower, double p, double v) {
+            this.axis = axis;
+            this.glyph = glyph;
+            this.lower = lower;
+            this.p = p;
+            this.v = v;
+            this.failAt = Double.POSITIVE_INFINITY;
+            this.handle = -1;
+        }
+
+
+        @Override
+        public int compareTo(Border that) {
+            return Double.compare(this.failAt, that.failAt);
+        }
+
+        /**
+         * Returns the position of this border at the given time, which must
+         * not be negative.
+         */
+        public double position(double at) {
+            return (glyph == null ? p : p + v * at);
+        }
+
+    }
+
+}
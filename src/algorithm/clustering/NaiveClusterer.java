@@ -81,10 +81,31 @@ public class NaiveClusterer extends Clusterer {
 
         // create merge events for all pairs of glyphs; glyphs earlier in the
         // overall list of glyphs track glyphs later in the list, not vice versa
-        for (int i = 0; i < n; ++i) {
-            Glyph glyphI = glyphsAliveList.get(i);
-            for (int j = i + 1; j < n; ++j) {
-                q.add(new GlyphMerge(glyphI, glyphsAliveList.get(j), g));
+        if (g.canIntersectInBatch()) {
+            // compute all merges of a glyph in one batch
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            int[] ns = new int[n];
+            double[] ats = new double[n];
+            for (int i = 0; i < n; ++i) {
+                Glyph glyph = glyphsAliveList.get(i);
+                xs[i] = glyph.getX();
+                ys[i] = glyph.getY();
+                ns[i] = glyph.getN();
+            }
+            for (int i = 0; i < n; ++i) {
+                Glyph glyphI = glyphsAliveList.get(i);
+                g.intersectAt(glyphI, xs, ys, ns, i + 1, n, ats);
+                for (int j = i + 1; j < n; ++j) {
+                    q.add(new GlyphMerge(glyphI, glyphsAliveList.get(j), ats[j]));
+                }
+            }
+        } else {
+            for (int i = 0; i < n; ++i) {
+                Glyph glyphI = glyphsAliveList.get(i);
+                for (int j = i + 1; j < n; ++j) {
+                    q.add(new GlyphMerge(glyphI, glyphsAliveList.get(j), g));
+                }
             }
         }
 
@@ -92,7 +113,7 @@ public class NaiveClusterer extends Clusterer {
         HierarchicalClustering[] from = new HierarchicalClustering[2];
         List<HierarchicalClustering> fromList = new ArrayList<>();
         Set<Glyph> glyphsAlive = new HashSet<>(glyphsAliveList);
-        FirstMergeRecorder rec = FirstMergeRecorder.getInstance(g);
+        FirstMergeRecorder rec = new FirstMergeRecorder(g);
         // process merge events until only a single glyph remains
         while (glyphsAlive.size() > 1) {
             // find first merge event involving two alive glyphs
@@ -134,7 +155,7 @@ public class NaiveClusterer extends Clusterer {
             }
             if (B.TRACK.get()) {
                 for (Glyph glyph : next.getGlyphs()) {
-                    for (Glyph orphan : glyph.trackedBy) {
+                    for (Glyph orphan : glyph.getTrackedBy()) {
                         if (orphan.isAlive()) {
                             if (!orphan.popMergeInto(q, null)) {
                                 rec.from(orphan);
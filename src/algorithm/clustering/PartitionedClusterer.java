@@ -0,0 +1,487 @@
+package algorithm.clustering;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import datastructure.Glyph;
+import datastructure.HierarchicalClustering;
+import datastructure.QuadTree;
+import datastructure.events.OutOfCell.Side;
+import datastructure.growfunction.GrowFunction;
+import datastructure.growfunction.speed.LinearGrowSpeed;
+import utils.Constants.B;
+import utils.Constants.I;
+import utils.Stat;
+import utils.Timer;
+import utils.Utils;
+import utils.Utils.Stats;
+import utils.Utils.Timers;
+
+/**
+ * The partitioned clusterer splits the area of the root {@link QuadTree} into
+ * {@code 4^}{@link I#PARTITION_LEVELS} equally sized regions, and clusters the
+ * glyphs of every region on its own, in parallel, using a
+ * {@link QuadTreeClusterer}. Every region stops as soon as one of its glyphs
+ * grows into a side that it shares with another region. Glyphs of different
+ * regions can only touch after that, so up to the first time that any region
+ * stops, the regions together do exactly what a single clustering of all
+ * glyphs would do. From that time on, a coordinating pass continues with the
+ * glyphs that are alive at that time, once more using a
+ * {@link QuadTreeClusterer}, and the results are joined.
+ *
+ * How much of the work is done in parallel depends on how long it takes for
+ * glyphs to grow into a region boundary. Only work that regions do between the
+ * first time that any region stops and the time that they stop themselves is
+ * thrown away. Out of cell events are never included in the result, as those
+ * depend on the cells of the QuadTree, which differ between passes.
+ *
+ * Every region records its own {@link Stats} and {@link Timers}, so that
+ * regions do not record in the shared ones at the same time.
+ *
+ * The joined result only equals that of a single clustering when that result
+ * does not depend on the cells of the QuadTree it is computed in. Therefore,
+ * only {@link #supports(GrowFunction) glyphs that grow linearly} are clustered,
+ * and only in {@link B#ROBUST} mode. Otherwise, which glyphs a merge swallows
+ * depends on the order in which a {@link QuadTreeClusterer} finds them, as a
+ * merged glyph need not cover the glyphs it is created from, and merges of
+ * glyphs that are very close together depend on the cells they are in.
+ *
+ * When {@link B#CHECK_PARTITIONED} is set, the result is compared to that of a
+ * single {@link QuadTreeClusterer} on copies of the same glyphs.
+ */
+public class PartitionedClusterer extends Clusterer {
+
+    private static final Logger LOGGER = (B.LOGGING_ENABLED.get() ?
+            Logger.getLogger(PartitionedClusterer.class.getName()) : null);
+
+
+    /**
+     * Returns whether the given grow function can be used by this clusterer.
+     * That is the case for glyphs that grow linearly in their weight, when
+     * glyphs are not compressed and do not have borders. Only then does a
+     * merged glyph cover the glyphs it is created from.
+     *
+     * @param g Grow function to check.
+     */
+    public static boolean supports(GrowFunction g) {
+        return (g.getSpeed().getClass() == LinearGrowSpeed.class &&
+                g.canIntersectInBatch());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public PartitionedClusterer(QuadTree tree) {
+        super(tree);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * The glyphs in the QuadTree and the QuadTree itself are not changed, and
+     * processing is never paused.
+     */
+    @Override
+    public Clusterer cluster(GrowFunction g, boolean includeOutOfCell,
+            boolean step) throws InterruptedException {
+        if (!supports(g)) {
+            throw new IllegalArgumentException("the partitioned clusterer only "
+                    + "supports linearly growing glyphs, not " + g.getName());
+        }
+        if (!B.ROBUST.get()) {
+            throw new IllegalStateException("the partitioned clusterer only "
+                    + "works in robust mode");
+        }
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "using the {0} grow function", g.getName());
+        }
+        if (B.TIMERS_ENABLED.get()) {
+            Timers.start("clustering");
+        }
+
+        // distribute copies of the glyphs over the regions
+        Rectangle2D rect = tree.getRectangle();
+        int k = 1 << I.PARTITION_LEVELS.get();
+        Region[] regions = new Region[k * k];
+        for (int row = 0; row < k; ++row) {
+            for (int col = 0; col < k; ++col) {
+                regions[row * k + col] = new Region(g, col, row, k, rect);
+            }
+        }
+        Map<Glyph, Glyph> originals = new HashMap<>();
+        for (QuadTree leaf : tree.getLeaves()) {
+            for (Glyph glyph : leaf.getGlyphs()) {
+                if (!glyph.isAlive()) {
+                    if (LOGGER != null) {
+                        LOGGER.log(Level.SEVERE, "unexpected dead glyph in input");
+                    }
+                    return null;
+                }
+                Glyph copy = copy(glyph);
+                originals.put(copy, glyph);
+                int col = Math.min(k - 1, Math.max(0, (int) Math.floor(
+                        (glyph.getX() - rect.getX()) / rect.getWidth() * k)));
+                int row = Math.min(k - 1, Math.max(0, (int) Math.floor(
+                        (glyph.getY() - rect.getY()) / rect.getHeight() * k)));
+                regions[row * k + col].glyphs.add(copy);
+            }
+        }
+        if (originals.isEmpty()) {
+            result = null;
+            return this;
+        }
+
+        // cluster all regions until they reach a boundary, glyphs of
+        // different regions cannot touch before the first one does
+        if (B.TIMERS_ENABLED.get())
+            Timers.start("regions");
+        IntStream.range(0, regions.length).parallel().forEach((i) ->
+                regions[i].cluster(g));
+        if (B.TIMERS_ENABLED.get())
+            Timers.stop("regions");
+        for (Region region : regions) {
+            Stats.merge(region.stats);
+            Timers.merge(region.timers, "[regions]");
+        }
+        double horizon = Double.POSITIVE_INFINITY;
+        for (Region region : regions) {
+            horizon = Math.min(horizon, region.boundaryAt);
+        }
+
+        // continue with glyphs that are alive at that time; merges that happen
+        // shortly before that time are redone, to be safe from rounding
+        if (B.TIMERS_ENABLED.get())
+            Timers.start("coordination");
+        Map<Glyph, HierarchicalClustering> alive = new HashMap<>();
+        int parallelMerges = 0;
+        for (Region region : regions) {
+            for (HierarchicalClustering node : region.result) {
+                parallelMerges += collectAlive(node, horizon - Utils.EPS,
+                        alive);
+            }
+        }
+        if (alive.size() == 1) {
+            result = alive.values().iterator().next();
+        } else {
+            QuadTree coordinatorTree = new QuadTree(rect, g);
+            coordinatorTree.insertCentersOf(new ArrayList<>(alive.keySet()));
+            QuadTreeClusterer coordinator = new QuadTreeClusterer(coordinatorTree);
+            coordinator.cluster(g, false, false);
+            result = coordinator.getClustering();
+            join(result, alive);
+        }
+        if (B.TIMERS_ENABLED.get())
+            Timers.stop("coordination");
+
+        // refer to the input glyphs rather than their copies
+        Deque<HierarchicalClustering> todo = new ArrayDeque<>();
+        todo.push(result);
+        while (!todo.isEmpty()) {
+            HierarchicalClustering node = todo.pop();
+            if (node.getCreatedFrom() == null) {
+                node.setGlyph(originals.get(node.getGlyph()));
+            } else {
+                node.getCreatedFrom().forEach(todo::push);
+            }
+        }
+
+        Stats.record("partition horizon", horizon);
+        Stats.record("partitioned merges in parallel", parallelMerges);
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "{0} merges happened in {1} regions before "
+                    + "the first glyph reached a boundary at {2}, {3} glyphs "
+                    + "remained", new Object[] {parallelMerges, regions.length,
+                    horizon, alive.size()});
+        }
+        if (B.CHECK_PARTITIONED.get()) {
+            check(g, originals);
+        }
+        if (B.TIMERS_ENABLED.get()) {
+            Timers.stop("clustering");
+            Timers.logAll(LOGGER);
+        }
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return "Partitioned Clusterer";
+    }
+
+
+    /**
+     * Returns a new alive glyph with the same position and weight as the given
+     * glyph, which is not in any {@link QuadTree}.
+     */
+    private static Glyph copy(Glyph glyph) {
+        Glyph copy = new Glyph(glyph.getX(), glyph.getY(), glyph.getN(), true);
+        copy.track = glyph.track;
+        return copy;
+    }
+
+    /**
+     * Find the nodes of the given clustering of which the glyph is alive at
+     * the given time: glyphs that were created before it and merged into
+     * another glyph after it. For every such node, a {@link #copy(Glyph) copy}
+     * of its glyph is mapped to the node.
+     *
+     * @return The number of merges that happened before the given time.
+     */
+    private static int collectAlive(HierarchicalClustering root, double at,
+            Map<Glyph, HierarchicalClustering> alive) {
+        int merges = 0;
+        Deque<HierarchicalClustering> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            HierarchicalClustering node = todo.pop();
+            if (node.getCreatedFrom() == null || node.getAt() < at) {
+                alive.put(copy(node.getGlyph()), node);
+                merges += count(node);
+            } else {
+                node.getCreatedFrom().forEach(todo::push);
+            }
+        }
+        return merges;
+    }
+
+    /**
+     * Returns the number of merges in the given clustering.
+     */
+    private static int count(HierarchicalClustering root) {
+        int merges = 0;
+        Deque<HierarchicalClustering> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            HierarchicalClustering node = todo.pop();
+            if (node.getCreatedFrom() != null) {
+                merges++;
+                node.getCreatedFrom().forEach(todo::push);
+            }
+        }
+        return merges;
+    }
+
+    /**
+     * Replace the leaves of the given clustering by the nodes that their glyphs
+     * are mapped to.
+     */
+    private static void join(HierarchicalClustering root,
+            Map<Glyph, HierarchicalClustering> nodes) {
+        Deque<HierarchicalClustering> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            HierarchicalClustering node = todo.pop();
+            List<HierarchicalClustering> createdFrom = node.getCreatedFrom();
+            for (int i = 0; i < createdFrom.size(); ++i) {
+                HierarchicalClustering from = createdFrom.get(i);
+                if (from.getCreatedFrom() == null) {
+                    HierarchicalClustering joined = nodes.get(from.getGlyph());
+                    createdFrom.set(i, joined);
+                    joined.mergeInto(node);
+                } else {
+                    todo.push(from);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare the current result to that of a {@link QuadTreeClusterer} on
+     * copies of the glyphs that were clustered. Every merge must combine the
+     * same glyphs at the same time.
+     *
+     * @param originals Map of copies to the glyphs that were clustered.
+     * @throws RuntimeException When the results differ.
+     */
+    private void check(GrowFunction g, Map<Glyph, Glyph> originals)
+            throws InterruptedException {
+        // index the glyphs, and cluster copies of them
+        Map<Glyph, Integer> index = new HashMap<>(2 * originals.size());
+        Map<Glyph, Integer> copyIndex = new HashMap<>(2 * originals.size());
+        List<Glyph> copies = new ArrayList<>(originals.size());
+        for (Glyph glyph : originals.values()) {
+            Glyph copy = copy(glyph);
+            index.put(glyph, index.size());
+            copyIndex.put(copy, copyIndex.size());
+            copies.add(copy);
+        }
+        QuadTree copyTree = new QuadTree(tree.getRectangle(), g);
+        copyTree.insertCentersOf(copies);
+        QuadTreeClusterer sequential = new QuadTreeClusterer(copyTree);
+        sequential.cluster(g, false, false);
+
+        // compare the merges of both clusterings
+        Map<Long, Double> expected = new HashMap<>();
+        fingerprint(sequential.getClustering(), copyIndex, expected);
+        Map<Long, Double> actual = new HashMap<>();
+        fingerprint(result, index, actual);
+        for (Map.Entry<Long, Double> e : actual.entrySet()) {
+            Double at = expected.get(e.getKey());
+            if (at == null || !Utils.Double.eq(at, e.getValue())) {
+                throw new RuntimeException("partitioned clustering has a merge "
+                        + "at " + e.getValue() + " that a sequential clustering "
+                        + (at == null ? "does not have" : "has at " + at));
+            }
+        }
+        if (actual.size() != expected.size()) {
+            throw new RuntimeException("partitioned clustering has "
+                    + actual.size() + " merges, a sequential clustering has "
+                    + expected.size());
+        }
+        if (LOGGER != null) {
+            LOGGER.log(Level.FINE, "partitioned clustering equals sequential "
+                    + "clustering");
+        }
+    }
+
+    /**
+     * Map a fingerprint of the set of leaves of every merge in the given
+     * clustering to the time of that merge.
+     *
+     * @param index Index of the glyph of every leaf.
+     * @return The fingerprint of the given clustering.
+     */
+    private static long fingerprint(HierarchicalClustering node,
+            Map<Glyph, Integer> index, Map<Long, Double> merges) {
+        if (node.getCreatedFrom() == null) {
+            long h = (index.get(node.getGlyph()) + 1) * 0x9E3779B97F4A7C15L;
+            return (h ^ (h >>> 29)) * 0xBF58476D1CE4E5B9L;
+        }
+        long fingerprint = 0;
+        for (HierarchicalClustering from : node.getCreatedFrom()) {
+            fingerprint += fingerprint(from, index, merges);
+        }
+        merges.put(fingerprint, node.getAt());
+        return fingerprint;
+    }
+
+
+    /**
+     * Part of the area of the root {@link QuadTree}, with the glyphs in it.
+     */
+    private static class Region {
+
+        /**
+         * Time at which a glyph of the region first grows into an inner side,
+         * after {@link #cluster}.
+         */
+        private double boundaryAt;
+        /**
+         * Glyphs in the region.
+         */
+        private final List<Glyph> glyphs;
+        /**
+         * Sides of the region that are shared with other regions.
+         */
+        private final List<Side> inner;
+        /**
+         * Clustering of every glyph that is alive at {@link #boundaryAt},
+         * after {@link #cluster}.
+         */
+        private List<HierarchicalClustering> result;
+        /**
+         * Stats recorded while clustering the region.
+         */
+        private final Map<String, Stat> stats;
+        /**
+         * Timers used while clustering the region.
+         */
+        private final Map<String, Timer> timers;
+        /**
+         * Root of the tree that the glyphs in the region are clustered in.
+         */
+        private final QuadTree tree;
+
+
+        /**
+         * Construct the region in the given column and row, when the given
+         * rectangle is split into {@code k} by {@code k} regions.
+         */
+        public Region(GrowFunction g, int col, int row, int k,
+                Rectangle2D rect) {
+            this.boundaryAt = Double.POSITIVE_INFINITY;
+            this.glyphs = new ArrayList<>();
+            this.inner = new ArrayList<>(4);
+            if (row > 0) {
+                inner.add(Side.TOP);
+            }
+            if (col < k - 1) {
+                inner.add(Side.RIGHT);
+            }
+            if (row < k - 1) {
+                inner.add(Side.BOTTOM);
+            }
+            if (col > 0) {
+                inner.add(Side.LEFT);
+            }
+            this.result = new ArrayList<>(0);
+            this.stats = new HashMap<>();
+            this.timers = new HashMap<>();
+            double w = rect.getWidth() / k;
+            double h = rect.getHeight() / k;
+            this.tree = new QuadTree(rect.getX() + col * w,
+                    rect.getY() + row * h, w, h, g);
+        }
+
+
+        /**
+         * Cluster the glyphs in the region until one of them grows into an
+         * inner side, or until a single glyph remains. In the latter case,
+         * that is when the remaining glyph grows into an inner side.
+         */
+        public void cluster(GrowFunction g) {
+            if (glyphs.isEmpty()) {
+                return;
+            }
+            if (glyphs.size() == 1) {
+                stop(g, new HierarchicalClustering(glyphs.get(0), 0));
+                return;
+            }
+            Map<String, Stat> sharedStats = Stats.scope(stats);
+            Map<String, Timer> sharedTimers = Timers.scope(timers);
+            try {
+                tree.insertCentersOf(glyphs);
+                QuadTreeClusterer clusterer = new QuadTreeClusterer(tree);
+                clusterer.stopAtBoundary(inner.toArray(new Side[0]));
+                clusterer.cluster(g, false, false);
+                if (clusterer.getStoppedWith() == null) {
+                    stop(g, clusterer.getClustering());
+                } else {
+                    boundaryAt = clusterer.getStoppedAt();
+                    result = clusterer.getStoppedWith();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                Stats.scope(sharedStats);
+                Timers.scope(sharedTimers);
+            }
+        }
+
+
+        /**
+         * Make the given clustering of a single glyph the result, and find when
+         * that glyph grows into an inner side.
+         */
+        private void stop(GrowFunction g, HierarchicalClustering root) {
+            for (Side side : inner) {
+                boundaryAt = Math.min(boundaryAt, Math.max(root.getAt(),
+                        g.exitAt(root.getGlyph(), tree, side)));
+            }
+            result = new ArrayList<>(1);
+            result.add(root);
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@ package algorithm.clustering;
 
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -9,9 +10,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import algorithm.FirstMergeRecorder;
 import datastructure.Glyph;
@@ -24,6 +28,10 @@ import datastructure.events.OutOfCell;
 import datastructure.events.OutOfCell.Side;
 import datastructure.events.UncertainGlyphMerge;
 import datastructure.growfunction.GrowFunction;
+import datastructure.queues.BucketingStrategy;
+import datastructure.queues.EventHeap;
+import datastructure.queues.EventQueue;
+import datastructure.queues.LadderQueue;
 import datastructure.queues.MultiQueue;
 import utils.Constants.B;
 import utils.Constants.D;
@@ -41,10 +49,37 @@ public class QuadTreeClusterer extends Clusterer {
             Logger.getLogger(Clusterer.class.getName()) : null);
 
 
+    /**
+     * Sides of the root cell at which clustering stops, or {@code null} when
+     * clustering continues until a single glyph remains.
+     *
+     * @see #stopAtBoundary(Side...)
+     */
+    private Side[] boundary;
     /**
      * Single object that is used to easily find merge events to be added.
      */
     private FirstMergeRecorder rec;
+    /**
+     * Time at which clustering stopped because a glyph grew into the
+     * {@link #boundary}, or infinity.
+     */
+    private double stoppedAt;
+    /**
+     * Clustering of every glyph that was alive when clustering stopped at the
+     * {@link #boundary}, or {@code null}.
+     */
+    private List<HierarchicalClustering> stoppedWith;
+    /**
+     * Reusable action for {@link QuadTree#forEachLeaf} that records the
+     * events of a glyph growing into a cell.
+     */
+    private final GrowInto growInto;
+    /**
+     * Reusable action for {@link QuadTree#forEachLeaf} that finds glyphs
+     * overlapping a given glyph.
+     */
+    private final OverlapFinder overlapFinder;
 
 
     /**
@@ -52,7 +87,12 @@ public class QuadTreeClusterer extends Clusterer {
      */
     public QuadTreeClusterer(QuadTree tree) {
         super(tree);
+        this.boundary = null;
         this.rec = null;
+        this.stoppedAt = Double.POSITIVE_INFINITY;
+        this.stoppedWith = null;
+        this.growInto = new GrowInto();
+        this.overlapFinder = new OverlapFinder();
     }
 
 
@@ -101,47 +141,62 @@ public class QuadTreeClusterer extends Clusterer {
         if (B.TIMERS_ENABLED.get()) {
             Timers.start("clustering");
         }
+        stoppedAt = Double.POSITIVE_INFINITY;
+        stoppedWith = null;
         // construct a queue, put everything in there - 10x number of glyphs
         // appears to be a good estimate for needed capacity without bucketing
-        MultiQueue q = new MultiQueue(E.QUEUE_BUCKETING.get(),
-                10 * Utils.size(tree.iteratorGlyphsAlive()));
-        // also create a result for each glyph, and a map to find them
+        EventQueue q = createQueue(10 * Utils.size(tree.iteratorGlyphsAlive()));
+        // also create a result for each glyph, and a map to find them; with a
+        // sink, only IDs of glyphs are kept and merges are written instead
         Map<Glyph, HierarchicalClustering> map = new HashMap<>();
         // then create a single object that is used to find first merges
-        rec = FirstMergeRecorder.getInstance(g);
+        rec = new FirstMergeRecorder(g);
         // group temporary and shared variables together in one object to reduce
         // the number of parameters to #handleGlyphMerge
         GlobalState state = new GlobalState(map);
+        if (sink != null) {
+            state.ids = new HashMap<>();
+        }
         // start recording merge events
-        Rectangle2D rect = tree.getRectangle();
-        for (QuadTree leaf : tree.getLeaves()) {
-            Glyph[] glyphs = leaf.getGlyphs().toArray(new Glyph[0]);
-            for (int i = 0; i < glyphs.length; ++i) {
-                // add events for when two glyphs in the same cell touch
-                LOGGER.log(Level.FINEST, glyphs[i].toString());
-                rec.from(glyphs[i]);
-                if (B.TIMERS_ENABLED.get())
-                    Timers.start("first merge recording 1");
-                rec.record(glyphs, i + 1, glyphs.length);
-                if (B.TIMERS_ENABLED.get())
-                    Timers.stop("first merge recording 1");
-                rec.addEventsTo(q, LOGGER);
-
-                // add events for when a glyph grows out of its cell
-                for (Side side : Side.values()) {
-                    // only create an event when it is not a border of the root
-                    if (!Utils.onBorderOf(leaf.getSide(side), rect)) {
-                        // now, actually create an OUT_OF_CELL event
-                        glyphs[i].record(new OutOfCell(glyphs[i], g, leaf, side));
-                    }
-                }
-                glyphs[i].popOutOfCellInto(q, LOGGER);
-
+        List<QuadTree> leaves = tree.getLeaves();
+        if (B.TIMERS_ENABLED.get())
+            Timers.start("initial event creation");
+        if (B.PARALLEL_INITIALIZATION.get()) {
+            // every leaf gets a batch of events, recorded by a recorder of its
+            // own, that is added to the queue in the original order
+            List<Queue<Event>> batches = leaves.parallelStream().map((leaf) -> {
+                Queue<Event> batch = new ArrayDeque<>();
+                recordInitialEvents(g, leaf, new FirstMergeRecorder(g), batch,
+                        false);
+                return batch;
+            }).collect(Collectors.toList());
+            List<Event> events = new ArrayList<>(q.size() + batches.stream()
+                    .mapToInt(Queue::size).sum());
+            for (Queue<Event> batch : batches) {
+                events.addAll(batch);
+            }
+            q.addAll(events);
+        } else {
+            for (QuadTree leaf : leaves) {
+                recordInitialEvents(g, leaf, rec, q, B.TIMERS_ENABLED.get());
+            }
+        }
+        if (B.TIMERS_ENABLED.get())
+            Timers.stop("initial event creation");
+        for (QuadTree leaf : leaves) {
+            for (Glyph glyph : leaf.getGlyphs()) {
                 // create clustering leaves for all glyphs, count them as alive
-                map.put(glyphs[i], new HierarchicalClustering(glyphs[i], 0));
+                if (sink == null) {
+                    map.put(glyph, new HierarchicalClustering(glyph, 0));
+                } else {
+                    state.ids.put(glyph, state.nextId);
+                    sink.merge(-1, -1, state.nextId++, 0, glyph.getX(),
+                            glyph.getY(), glyph.getN());
+                }
                 state.numAlive++;
-                state.glyphSize.record(glyphs[i].getN());
-                if (!glyphs[i].isAlive()) {
+                state.glyphSize.record(glyph.getN());
+                recordBoundaryEvents(g, glyph, 0, q);
+                if (!glyph.isAlive()) {
                     if (LOGGER != null) {
                         LOGGER.log(Level.SEVERE, "unexpected dead glyph in input");
                     }
@@ -158,6 +213,32 @@ public class QuadTreeClusterer extends Clusterer {
             if (Thread.interrupted()) {
                 throw new InterruptedException();
             }
+            // stop when a glyph grows out of the area that is clustered
+            if (isBoundaryEvent(e)) {
+                // release the root for this event, and every cell pinned by an
+                // event that is not handled anymore, boundary events included
+                if (B.QUADTREE_NODE_POOLING.get()) {
+                    tree.unpin();
+                    Event r;
+                    while ((r = q.poll()) != null) {
+                        if (r.getType() == Type.OUT_OF_CELL) {
+                            ((OutOfCell) r).getCell().unpin();
+                        }
+                    }
+                }
+                stoppedAt = e.getAt();
+                stoppedWith = new ArrayList<>(state.numAlive);
+                for (Map.Entry<Glyph, HierarchicalClustering> entry :
+                        map.entrySet()) {
+                    if (entry.getKey().isAlive()) {
+                        stoppedWith.add(entry.getValue());
+                    }
+                }
+                if (LOGGER != null)
+                    LOGGER.log(Level.FINE, "stopped at {0}, when a glyph "
+                            + "reached the boundary", stoppedAt);
+                break;
+            }
 
             // log on a slightly higher urgency level when one of the glyphs is tracked
             if (LOGGER != null) {
@@ -218,6 +299,9 @@ public class QuadTreeClusterer extends Clusterer {
                 if (B.TIMERS_ENABLED.get())
                     Timers.start("out of cell event processing");
                 handleOutOfCell(g, (OutOfCell) e, map, includeOutOfCell, q);
+                if (B.QUADTREE_NODE_POOLING.get()) {
+                    ((OutOfCell) e).getCell().unpin();
+                }
                 if (B.TIMERS_ENABLED.get())
                     Timers.stop("out of cell event processing");
                 break;
@@ -278,7 +362,7 @@ public class QuadTreeClusterer extends Clusterer {
                 LOGGER.setLevel(defaultLevel);
         }
         if (LOGGER != null) {
-            if (LOGGER.isLoggable(Level.FINE)) {
+            if (LOGGER.isLoggable(Level.FINE) && result != null) {
                 Stats.record("total # works", result.getGlyph().getN());
             }
             LOGGER.log(Level.FINE, "created {0} events, handled {1} and discarded "
@@ -297,6 +381,9 @@ public class QuadTreeClusterer extends Clusterer {
                 Stats.remove(tn + " discarded");
             }
             LOGGER.log(Level.FINE, "events were stored in {0} queue(s)", q.getNumQueues());
+            LOGGER.log(Level.FINE, "queue held at most {0} events and was "
+                    + "compacted {1} time(s)", new Object[] {q.getPeakSize(),
+                    q.getCompactions()});
             LOGGER.log(Level.FINE, "QuadTree has {0} nodes and height {1} now",
                     new Object[] {tree.getSize(), tree.getTreeHeight()});
             Stats.logAll(LOGGER);
@@ -313,6 +400,114 @@ public class QuadTreeClusterer extends Clusterer {
         return "QuadTree Clusterer";
     }
 
+    /**
+     * Returns the time at which the last clustering stopped because a glyph
+     * grew into the {@link #stopAtBoundary(Side...) boundary}, or infinity
+     * when it did not stop there.
+     */
+    double getStoppedAt() {
+        return stoppedAt;
+    }
+
+    /**
+     * Returns the clustering of every glyph that was alive when the last
+     * clustering stopped at the {@link #stopAtBoundary(Side...) boundary}, or
+     * {@code null} when it did not stop there. In the latter case,
+     * {@link #getClustering()} is the complete clustering.
+     */
+    List<HierarchicalClustering> getStoppedWith() {
+        return stoppedWith;
+    }
+
+    /**
+     * Stop clustering as soon as an alive glyph grows out of the root cell on
+     * one of the given sides, rather than when a single glyph remains. This
+     * is done with an out of cell event for the root cell for every glyph
+     * that exists during clustering. Events at the time at which clustering
+     * stops may or may not have been handled.
+     *
+     * Out of cell events for the root cell are not otherwise created, so
+     * such events can be recognised as the boundary being reached.
+     *
+     * @param sides Sides of the root cell to stop at. When none are given,
+     *            clustering is not stopped.
+     */
+    void stopAtBoundary(Side... sides) {
+        this.boundary = (sides.length == 0 ? null : sides);
+    }
+
+
+    /**
+     * Record the first merge events and the out of cell events of all glyphs in
+     * the given leaf, and add those events to the given queue. This only
+     * touches the glyphs in {@code leaf}, so different leaves can be handled
+     * by different threads, each with their own recorder.
+     *
+     * @param g Function to determine when events occur.
+     * @param leaf Leaf of which the glyphs are considered.
+     * @param rec Recorder to find first merges with.
+     * @param q Queue to add events to.
+     * @param timed Whether timers should be used. Timers cannot be used by
+     *            multiple threads at once.
+     */
+    private void recordInitialEvents(GrowFunction g, QuadTree leaf,
+            FirstMergeRecorder rec, Queue<Event> q, boolean timed) {
+        Rectangle2D rect = tree.getRectangle();
+        Glyph[] glyphs = leaf.getGlyphs().toArray(new Glyph[0]);
+        for (int i = 0; i < glyphs.length; ++i) {
+            // add events for when two glyphs in the same cell touch
+            if (LOGGER != null)
+                LOGGER.log(Level.FINEST, glyphs[i].toString());
+            rec.from(glyphs[i]);
+            if (timed)
+                Timers.start("first merge recording 1");
+            rec.record(glyphs, i + 1, glyphs.length);
+            if (timed)
+                Timers.stop("first merge recording 1");
+            rec.addEventsTo(q, LOGGER);
+
+            // add events for when a glyph grows out of its cell
+            for (Side side : Side.values()) {
+                // only create an event when it is not a border of the root
+                if (!Utils.onBorderOf(leaf.getSide(side), rect)) {
+                    // now, actually create an OUT_OF_CELL event
+                    glyphs[i].record(new OutOfCell(glyphs[i], g, leaf, side));
+                }
+            }
+            glyphs[i].popOutOfCellInto(q, LOGGER);
+        }
+    }
+
+    /**
+     * Add an out of cell event to the given queue for every side of the
+     * {@link #boundary} that the given glyph grows out of the root cell on.
+     * A glyph that is created outside of the root cell does so when it is
+     * created.
+     *
+     * @param at Time at which the glyph is created.
+     */
+    private void recordBoundaryEvents(GrowFunction g, Glyph glyph, double at,
+            Queue<Event> q) {
+        if (boundary == null) {
+            return;
+        }
+        for (Side side : boundary) {
+            q.add(new OutOfCell(glyph, tree, side,
+                    Math.max(at, g.exitAt(glyph, tree, side))));
+            if (B.QUADTREE_NODE_POOLING.get()) {
+                tree.pin();
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given event is one that is added by
+     * {@link #recordBoundaryEvents}.
+     */
+    private boolean isBoundaryEvent(Event event) {
+        return (boundary != null && event.getType() == Type.OUT_OF_CELL &&
+                ((OutOfCell) event).getCell() == tree);
+    }
 
     /**
      * Find glyphs that overlap the given glyph at the given timestamp/zoom level,
@@ -333,18 +528,13 @@ public class QuadTreeClusterer extends Clusterer {
      */
     private boolean findOverlap(GrowFunction g, Glyph with, double at,
             PriorityQueue<GlyphMerge> addTo, List<Glyph> bigGlyphs) {
-        boolean foundOverlap = false;
-
         // check glyphs in cells of the given glyph
+        overlapFinder.set(g, with, at, addTo);
+        tree.forEachLeaf(with, at, g, overlapFinder);
+        boolean foundOverlap = overlapFinder.foundOverlap;
+        overlapFinder.set(null, null, 0, null);
+
         double bAt; // before `at`, used to store time/zoom level of found merges
-        for (QuadTree cell : tree.getLeaves(with, at, g)) {
-            for (Glyph glyph : cell.getGlyphsAlive()) {
-                if ((bAt = g.intersectAt(with, glyph)) <= at) {
-                    foundOverlap = true;
-                    addTo.add(new GlyphMerge(null, glyph, bAt));
-                }
-            }
-        }
 
         // also check big glyphs separately
         for (Glyph big : bigGlyphs) {
@@ -357,15 +547,32 @@ public class QuadTreeClusterer extends Clusterer {
         return foundOverlap;
     }
 
+    /**
+     * Construct an empty event queue, of the type selected through
+     * {@link B#EVENT_HEAP} and {@link E#QUEUE_BUCKETING}, in that order.
+     *
+     * @param capacity Initial capacity of the queue.
+     */
+    private EventQueue createQueue(int capacity) {
+        if (B.EVENT_HEAP.get()) {
+            return new EventHeap(capacity);
+        }
+        BucketingStrategy bucketing = E.QUEUE_BUCKETING.get();
+        if (bucketing == BucketingStrategy.LADDER) {
+            return new LadderQueue(bucketing, capacity);
+        }
+        return new MultiQueue(bucketing, capacity);
+    }
+
     /**
      * Returns the first event that will happen. Normally, this is the head of
-     * the given {@link MultiQueue} (modulo discarded events). However, the queues
+     * the given {@link EventQueue} (modulo discarded events). However, the queues
      * of {@linkplain GlobalState#bigGlyphs big glyphs} are also checked.
      *
      * @return The next event to occur, or {@code null} if there are no more
      *         events to handle or only a single alive glyph left.
      */
-    private Event getNextEvent(MultiQueue q, GlobalState s) {
+    private Event getNextEvent(EventQueue q, GlobalState s) {
         if (s.numAlive <= 1) {
             return null;
         }
@@ -375,16 +582,25 @@ public class QuadTreeClusterer extends Clusterer {
         Event queueEvent = null;
         findQueueEvent: while (!q.isEmpty()) {
             event = q.peek();
-            // we ignore out of cell events for non-leaf cells
+            // we ignore out of cell events for non-leaf cells, except for
+            // those that mark the boundary at which clustering stops
             if (event.getType() == Type.OUT_OF_CELL &&
-                    !((OutOfCell) event).getCell().isLeaf()) {
+                    !((OutOfCell) event).getCell().isLeaf() &&
+                    !isBoundaryEvent(event)) {
                 q.discard();
+                if (B.QUADTREE_NODE_POOLING.get()) {
+                    ((OutOfCell) event).getCell().unpin();
+                }
                 continue;
             }
             // we ignore this event if not all glyphs from it are alive anymore
             for (Glyph glyph : event.getGlyphs()) {
                 if (!glyph.isAlive()) {
                     q.discard();
+                    if (B.QUADTREE_NODE_POOLING.get() &&
+                            event.getType() == Type.OUT_OF_CELL) {
+                        ((OutOfCell) event).getCell().unpin();
+                    }
                     continue findQueueEvent;
                 }
             }
@@ -418,7 +634,7 @@ public class QuadTreeClusterer extends Clusterer {
     }
 
     private void handleBigGlyphMerge(GrowFunction g, GlyphMerge m,
-            GlobalState s, MultiQueue q, boolean track) {
+            GlobalState s, EventQueue q, boolean track) {
         if (B.TIMERS_ENABLED.get()) {
             Timers.start("[merge event processing] big");
         }
@@ -452,6 +668,7 @@ public class QuadTreeClusterer extends Clusterer {
 
         // update bookkeeping
         recordGlyphAndStats(merged, s, q, track);
+        recordBoundaryEvents(g, merged, m.getAt(), q);
 
         if (B.TIMERS_ENABLED.get()) {
             Timers.stop("[merge event processing] big");
@@ -459,7 +676,7 @@ public class QuadTreeClusterer extends Clusterer {
     }
 
     private void handleGlyphMerge(GrowFunction g, GlyphMerge m,
-            GlobalState s, MultiQueue q, boolean track) {
+            GlobalState s, EventQueue q, boolean track) {
         // process the merge and all merges that it causes
         Glyph merged = processNestedMerges(g, m, s, q, track);
 
@@ -479,14 +696,15 @@ public class QuadTreeClusterer extends Clusterer {
 
         // update bookkeeping
         recordGlyphAndStats(merged, s, q, track);
+        recordBoundaryEvents(g, merged, m.getAt(), q);
     }
 
     private void handleOutOfCell(GrowFunction g, OutOfCell o,
             Map<Glyph, HierarchicalClustering> map, boolean includeOutOfCell,
-            PriorityQueue<Event> q) {
+            EventQueue q) {
         Glyph glyph = o.getGlyphs()[0];
-        // possibly include the event
-        if (includeOutOfCell &&
+        // possibly include the event, which is not a merge for a sink
+        if (includeOutOfCell && sink == null &&
                 Utils.Double.neq(map.get(glyph).getAt(), o.getAt())) {
             HierarchicalClustering hc = new HierarchicalClustering(glyph,
                     o.getAt(), map.get(glyph));
@@ -551,8 +769,11 @@ public class QuadTreeClusterer extends Clusterer {
             // register glyph in cell(s) it grows into
             neighbor.insert(glyph, oAt, g);
 
+            // prepare recording events in the cells the glyph grows into
+            rec.from(glyph);
+            growInto.set(g, glyph, o.getSide(), oAt);
+
             // split cell if necessary, to maintain maximum glyphs per cell
-            List<QuadTree> grownInto;
             if (neighbor.getGlyphs() != null &&
                     neighbor.getGlyphs().size() > I.MAX_GLYPHS_PER_CELL.get()) {
                 // 1. split and move glyphs in cell to appropriate leaf cells
@@ -568,51 +789,15 @@ public class QuadTreeClusterer extends Clusterer {
                 // this step is currently not implemented
                 // 4. continue with making events in appropriate cells instead
                 //    of `neighbor` or all glyphs associated with `neighbor`
-                grownInto = neighbor.getLeaves(glyph, oAt, g);
+                neighbor.forEachLeaf(glyph, oAt, g, growInto);
                 if (LOGGER != null && LOGGER.isLoggable(Level.FINE)) {
-                    for (QuadTree in : neighbor.getLeaves()) {
-                        Stats.record("glyphs per cell",
-                                in.getGlyphsAlive().size());
-                    }
+                    neighbor.forEachLeaf((in) -> Stats.record(
+                            "glyphs per cell", in.getGlyphsAlive().size()));
                 }
             } else {
-                grownInto = neighbor.getLeaves();
-            }
-
-            rec.from(glyph);
-            for (QuadTree in : grownInto) {
-                // create merge events with glyphs in the cells the glyph grows
-                // into - we must do this to get correctness
-                Timers.start("first merge recording 4");
-                rec.record(in.getGlyphs());
-                Timers.stop("first merge recording 4");
-
-                // create out of cell events for the cells the glyph grows into,
-                // but only when they happen after the current event
-                for (Side side : o.getSide().opposite().others()) {
-                    double at = g.exitAt(glyph, in, side);
-                    if (at >= oAt) {
-                        // only create an event when at least one neighbor on
-                        // this side does not contain the glyph yet
-                        boolean create = false;
-                        List<QuadTree> neighbors2 = in.getNeighbors(side);
-                        for (QuadTree neighbor2 : neighbors2) {
-                            if (!neighbor2.getGlyphs().contains(glyph)) {
-                                create = true;
-                                break;
-                            }
-                        }
-                        if (!create) {
-                            continue;
-                        }
-                        // now, actually create an OUT_OF_CELL event
-                        if (LOGGER != null)
-                            LOGGER.log(Level.FINEST, "→ out of {0} of {2} at {1}",
-                                    new Object[] {side, at, in});
-                        glyph.record(new OutOfCell(glyph, in, side, at));
-                    }
-                }
+                neighbor.forEachLeaf(growInto);
             }
+            growInto.set(null, null, null, 0);
             glyph.popOutOfCellInto(q, LOGGER);
             rec.addEventsTo(q, LOGGER);
         }
@@ -644,7 +829,7 @@ public class QuadTreeClusterer extends Clusterer {
      * in those joined cells as well.
      */
     private Glyph processNestedMerges(GrowFunction g, GlyphMerge m,
-            GlobalState s, MultiQueue q, boolean track) {
+            GlobalState s, EventQueue q, boolean track) {
         if (B.TIMERS_ENABLED.get()) {
             Timers.start("[merge event processing] total");
             if (track) {
@@ -657,6 +842,7 @@ public class QuadTreeClusterer extends Clusterer {
         // overlap other glyphs at this time - repeat until no more overlap
         Glyph merged = null;
         HierarchicalClustering mergedHC = null;
+        int mergedId = -1;
         double mergedAt = m.getAt();
 
         if (B.TIMERS_ENABLED.get()) {
@@ -678,15 +864,25 @@ public class QuadTreeClusterer extends Clusterer {
                 }
 
                 // create a merged glyph, update clustering
-                if (mergedHC == null) {
+                if (merged == null) {
                     merged = new Glyph(m.getGlyphs());
-                    mergedHC = new HierarchicalClustering(merged,
-                        mergedAt, Utils.map(m.getGlyphs(), s.map,
-                        s.createdFromTmp));
+                    if (sink == null) {
+                        mergedHC = new HierarchicalClustering(merged,
+                            mergedAt, Utils.map(m.getGlyphs(), s.map,
+                            s.createdFromTmp));
+                    } else {
+                        mergedId = writeMerge(s.ids.get(m.getGlyphs()[0]),
+                                m.getGlyphs()[1], merged, mergedAt, s);
+                    }
                 } else {
-                    mergedHC.alsoCreatedFrom(s.map.get(m.getGlyphs()[1]));
                     merged = new Glyph(merged, m.getGlyphs()[1]);
-                    mergedHC.setGlyph(merged);
+                    if (sink == null) {
+                        mergedHC.alsoCreatedFrom(s.map.get(m.getGlyphs()[1]));
+                        mergedHC.setGlyph(merged);
+                    } else {
+                        mergedId = writeMerge(mergedId, m.getGlyphs()[1],
+                                merged, mergedAt, s);
+                    }
                     if (m.getGlyphs()[1].isBig()) {
                         s.mergedBigGlyph = true;
                         Stats.count("merge nested big");
@@ -705,20 +901,36 @@ public class QuadTreeClusterer extends Clusterer {
                     if (glyph.isBig()) {
                         s.bigGlyphs.remove(glyph);
                     }
+                    // with a sink, only alive glyphs need an ID
+                    if (sink != null) {
+                        s.ids.remove(glyph);
+                    }
                     // copy the set of cells the glyph is in currently, because we
                     // are about to change that set and don't want to deal with
                     // ConcurrentModificationExceptions...
-                    for (QuadTree cell : new ArrayList<>(glyph.getCells())) {
+                    List<QuadTree> cells = new ArrayList<>(glyph.getCells());
+                    if (B.QUADTREE_NODE_POOLING.get()) {
+                        // the glyph forgets its cells, and the cells are pinned
+                        // so that they are not reused before orphaned cells
+                        // are handled below
+                        for (QuadTree cell : cells) {
+                            glyph.removeCell(cell);
+                            cell.pin();
+                        }
+                    }
+                    for (QuadTree cell : cells) {
                         if (cell.removeGlyph(glyph, mergedAt)) {
                             // handle merge events (later, see below)
                             s.orphanedCells.add(cell);
                             // out of cell events are handled when they
                             // occur, see #handleOutOfCell
+                        } else if (B.QUADTREE_NODE_POOLING.get()) {
+                            cell.unpin();
                         }
                     }
                     // update merge events of glyphs that tracked merged glyphs
                     if (B.TRACK.get() && !B.ROBUST.get()) {
-                        for (Glyph tracker : glyph.trackedBy) {
+                        for (Glyph tracker : glyph.getTrackedBy()) {
                             if (!s.trackersNeedingUpdate.contains(tracker)) {
                                 s.trackersNeedingUpdate.add(tracker);
                             }
@@ -746,6 +958,11 @@ public class QuadTreeClusterer extends Clusterer {
                     if (B.TIMERS_ENABLED.get())
                         Timers.stop("record all pairs");
                 });
+        if (B.QUADTREE_NODE_POOLING.get()) {
+            for (QuadTree cell : s.orphanedCells) {
+                cell.unpin();
+            }
+        }
         s.orphanedCells.clear();
         if (B.TIMERS_ENABLED.get()) {
             Timers.stop("[merge event processing] merge events in joined cells");
@@ -789,13 +1006,28 @@ public class QuadTreeClusterer extends Clusterer {
         }
 
         // eventually, the last merged glyph is the root
-        s.map.put(merged, mergedHC);
-        result = mergedHC;
+        if (sink == null) {
+            s.map.put(merged, mergedHC);
+            result = mergedHC;
+        } else {
+            s.ids.put(merged, mergedId);
+        }
 
         return merged;
     }
 
-    private void recordGlyphAndStats(Glyph merged, GlobalState s, MultiQueue q,
+    /**
+     * Write the merge of the glyph with the given ID and the given glyph to
+     * the {@link #sink}, and return the ID of the merged glyph.
+     */
+    private int writeMerge(int id, Glyph with, Glyph merged, double at,
+            GlobalState s) {
+        sink.merge(id, s.ids.get(with), s.nextId, at, merged.getX(),
+                merged.getY(), merged.getN());
+        return s.nextId++;
+    }
+
+    private void recordGlyphAndStats(Glyph merged, GlobalState s, EventQueue q,
             boolean track) {
         merged.participate(); s.numAlive++; s.glyphSize.record(merged.getN());
         if (merged.isBig()) {
@@ -841,7 +1073,7 @@ public class QuadTreeClusterer extends Clusterer {
      * In the same loop, find merges as well, using the global {@link #rec}.
      */
     private void recordEventsForGlyph(Glyph merged, double at,
-            GrowFunction g, MultiQueue q) {
+            GrowFunction g, EventQueue q) {
         if (B.TIMERS_ENABLED.get())
             Timers.start("[merge event processing] merge event recording");
         // create events with remaining glyphs
@@ -862,7 +1094,7 @@ public class QuadTreeClusterer extends Clusterer {
                 boolean create = false;
                 if (B.TIMERS_ENABLED.get())
                     Timers.start("neighbor finding");
-                List<QuadTree> neighbors = cell.getNeighbors(side);
+                Set<QuadTree> neighbors = cell.getNeighbors(side);
                 if (B.TIMERS_ENABLED.get())
                     Timers.stop("neighbor finding");
                 for (QuadTree neighbor : neighbors) {
@@ -914,11 +1146,120 @@ public class QuadTreeClusterer extends Clusterer {
     }
 
 
+    /**
+     * Action that is performed on every cell a glyph grows into when it grows
+     * out of a cell. It records merge events with the glyphs in that cell, and
+     * out of cell events for the glyph. This is done in an object that is
+     * reused, so that {@link QuadTree#forEachLeaf} does not allocate.
+     *
+     * The glyph needs to be set {@link FirstMergeRecorder#from(Glyph) from}
+     * on {@link QuadTreeClusterer#rec} before leaves are visited.
+     */
+    private class GrowInto implements Consumer<QuadTree> {
+
+        private double at;
+        private GrowFunction g;
+        private Glyph glyph;
+        /**
+         * Side of the cell the glyph grows out of.
+         */
+        private Side side;
+
+
+        @Override
+        public void accept(QuadTree in) {
+            // create merge events with glyphs in the cells the glyph grows
+            // into - we must do this to get correctness
+            Timers.start("first merge recording 4");
+            rec.record(in.getGlyphs());
+            Timers.stop("first merge recording 4");
+
+            // create out of cell events for the cells the glyph grows into,
+            // but only when they happen after the current event
+            for (Side side : this.side.opposite().others()) {
+                double at = g.exitAt(glyph, in, side);
+                if (at >= this.at) {
+                    // only create an event when at least one neighbor on
+                    // this side does not contain the glyph yet
+                    boolean create = false;
+                    Set<QuadTree> neighbors2 = in.getNeighbors(side);
+                    for (QuadTree neighbor2 : neighbors2) {
+                        if (!neighbor2.getGlyphs().contains(glyph)) {
+                            create = true;
+                            break;
+                        }
+                    }
+                    if (!create) {
+                        continue;
+                    }
+                    // now, actually create an OUT_OF_CELL event
+                    if (LOGGER != null)
+                        LOGGER.log(Level.FINEST, "→ out of {0} of {2} at {1}",
+                                new Object[] {side, at, in});
+                    glyph.record(new OutOfCell(glyph, in, side, at));
+                }
+            }
+        }
+
+        public void set(GrowFunction g, Glyph glyph, Side side, double at) {
+            this.at = at;
+            this.g = g;
+            this.glyph = glyph;
+            this.side = side;
+        }
+
+    }
+
+
+    /**
+     * Action that adds a merge event for every alive glyph in a cell that
+     * overlaps a given glyph at a given time. This is done in an object that
+     * is reused, so that {@link QuadTree#forEachLeaf} does not allocate.
+     *
+     * @see QuadTreeClusterer#findOverlap(GrowFunction, Glyph, double,
+     *      PriorityQueue, List)
+     */
+    private static class OverlapFinder implements Consumer<QuadTree> {
+
+        private PriorityQueue<GlyphMerge> addTo;
+        private double at;
+        /**
+         * Whether any overlap has been found since the last call to
+         * {@link #set(GrowFunction, Glyph, double, PriorityQueue)}.
+         */
+        private boolean foundOverlap;
+        private GrowFunction g;
+        private Glyph with;
+
+
+        @Override
+        public void accept(QuadTree cell) {
+            double bAt; // before `at`, used to store time/zoom level of found merges
+            for (Glyph glyph : cell.getGlyphs()) {
+                if (glyph.isAlive() && (bAt = g.intersectAt(with, glyph)) <= at) {
+                    foundOverlap = true;
+                    addTo.add(new GlyphMerge(null, glyph, bAt));
+                }
+            }
+        }
+
+        public void set(GrowFunction g, Glyph with, double at,
+                PriorityQueue<GlyphMerge> addTo) {
+            this.addTo = addTo;
+            this.at = at;
+            this.foundOverlap = false;
+            this.g = g;
+            this.with = with;
+        }
+
+    }
+
+
     /**
      * Object that is used to easily share state between
      * {@link QuadTreeClusterer#cluster(GrowFunction, boolean, boolean) cluster} and
      * {@link QuadTreeClusterer#handleGlyphMerge(GrowFunction, GlyphMerge,
-     * PriorityQueue) handleGlyphMerge}.
+     * GlobalState, EventQueue, boolean) handleGlyphMerge}.
      */
     private static class GlobalState {
 
@@ -932,6 +1273,10 @@ public class QuadTreeClusterer extends Clusterer {
         private double lastDumpedMerges = Timers.in(Timers.elapsed("clustering"), Units.SECONDS);
         // mapping from glyphs to (currently) highest level nodes in resulting clustering
         private Map<Glyph, HierarchicalClustering> map;
+        // mapping from alive glyphs to their IDs, when writing to a sink
+        private Map<Glyph, Integer> ids;
+        // ID that the next glyph written to a sink gets
+        private int nextId = 0;
         // finally, create an indication of which glyphs still participate
         private int numAlive = 0;
         // statistic for sizes of currently alive glyphs
@@ -3,9 +3,10 @@ package datastructure;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,14 +17,13 @@ import datastructure.events.GlyphMerge;
 import datastructure.events.OutOfCell;
 import datastructure.events.UncertainGlyphMerge;
 import datastructure.growfunction.CompressionThreshold;
-import datastructure.growfunction.CompressionThreshold.Threshold;
 import datastructure.growfunction.GrowFunction;
+import datastructure.queues.AddressableHeap;
 import datastructure.queues.UncertainQueue;
 import utils.Constants;
 import utils.Constants.B;
 import utils.Constants.D;
 import utils.Constants.I;
-import utils.MutableOptional;
 import utils.Stat;
 import utils.Utils;
 import utils.Utils.Stats;
@@ -34,20 +34,34 @@ import utils.Utils.Stats;
 public class Glyph {
 
     /**
-     * Compression threshold that should be used for this glyph. This is determined
-     * by {@link CompressionThreshold}, and cached on the glyph.
+     * Value of {@link #level} for glyphs whose compression level has not been
+     * determined yet.
      */
-    public MutableOptional<Threshold> threshold;
+    private static final int NO_LEVEL = -1;
+
+
     /**
      * Whether this glyph is of special interest. Used for debugging.
      */
     public boolean track;
+
+    /**
+     * Compression level of this glyph. This is determined by
+     * {@link CompressionThreshold}, and cached on the glyph.
+     */
+    private int level;
     /**
      * Used by the clustering algorithm to track which glyphs think they'll merge
-     * with {@code this} glyph before merging with any other glyph.
+     * with {@code this} glyph before merging with any other glyph. Only
+     * initialized when the first tracking glyph is added.
      */
-    public List<Glyph> trackedBy;
-
+    private List<Glyph> trackedBy;
+    /**
+     * Merge events with this glyph that other glyphs have recorded and not
+     * popped yet, so that those glyphs can remove them by handle when this
+     * glyph perishes. Only initialized when the first such event is recorded.
+     */
+    private OrderedIdentitySet<GlyphMerge> recordedBy;
     /**
      * X-coordinate of the center of the glyph.
      */
@@ -71,9 +85,10 @@ public class Glyph {
      */
     private boolean big;
     /**
-     * Set of QuadTree cells that this glyph intersects.
+     * Set of QuadTree cells that this glyph intersects. Only initialized when
+     * the first cell is added.
      */
-    private final List<QuadTree> cells;
+    private Set<QuadTree> cells;
     /**
      * Uncertain events involving this glyph: only initialized and used in case
      * this is a big glyph. See ... for details.
@@ -88,13 +103,15 @@ public class Glyph {
     /**
      * Events involving this glyph. Only one event is actually in the event
      * queue, others are added only when that one is popped from the queue.
+     * Only initialized when the first event is recorded.
      */
-    private final Queue<GlyphMerge> mergeEvents;
+    private AddressableHeap<GlyphMerge> mergeEvents;
     /**
      * Events involving this glyph. Only one event is actually in the event
      * queue, others are added only when that one is popped from the queue.
+     * Only initialized when the first event is recorded.
      */
-    private final Queue<OutOfCell> outOfCellEvents;
+    private AddressableHeap<OutOfCell> outOfCellEvents;
 
 
     /**
@@ -123,23 +140,20 @@ public class Glyph {
         if (n < 1) {
             throw new IllegalArgumentException("n must be at least 1");
         }
-        this.threshold = new MutableOptional<>();
         this.track = false;
-        if (B.TRACK.get() && !B.ROBUST.get()) {
-            this.trackedBy = new ArrayList<>();
-        } else {
-            this.trackedBy = null;
-        }
+        this.level = NO_LEVEL;
+        this.trackedBy = null;
+        this.recordedBy = null;
         this.x = x;
         this.y = y;
         this.n = n;
         this.alive = (alive ? 1 : 0);
         this.big = false;
-        this.cells = new ArrayList<>();
+        this.cells = null;
         this.uncertainMergeEvents = null;
         this.adoptedBy = null;
-        this.mergeEvents = new PriorityQueue<>(I.MAX_MERGES_TO_RECORD.get());
-        this.outOfCellEvents = new PriorityQueue<>();
+        this.mergeEvents = null;
+        this.outOfCellEvents = null;
     }
 
     /**
@@ -175,9 +189,10 @@ public class Glyph {
      * @param cell Cell to be added.
      */
     public void addCell(QuadTree cell) {
-        if (!cells.contains(cell)) {
-            cells.add(cell);
+        if (cells == null) {
+            cells = new OrderedIdentitySet<>();
         }
+        cells.add(cell);
     }
 
     /**
@@ -219,10 +234,23 @@ public class Glyph {
     /**
      * Returns all recorded cells intersecting the glyph.
      */
-    public List<QuadTree> getCells() {
+    public Set<QuadTree> getCells() {
+        if (cells == null) {
+            return Collections.emptySet();
+        }
         return cells;
     }
 
+    /**
+     * Returns the cached compression level of this glyph, or -1 if it has not
+     * been determined yet.
+     *
+     * @see CompressionThreshold#getCompressionLevel(Glyph)
+     */
+    public int getCompressionLevel() {
+        return level;
+    }
+
     /**
      * Returns the number of entities represented by the glyph.
      */
@@ -230,6 +258,19 @@ public class Glyph {
         return n;
     }
 
+    /**
+     * Returns the glyphs that think they'll merge with this glyph before
+     * merging with any other glyph.
+     *
+     * @see #popMergeInto(Queue, Logger)
+     */
+    public List<Glyph> getTrackedBy() {
+        if (trackedBy == null) {
+            return Collections.emptyList();
+        }
+        return trackedBy;
+    }
+
     /**
      * Returns the X-coordinate of the center of the glyph.
      */
@@ -271,6 +312,14 @@ public class Glyph {
                 Utils.Double.eq(this.y, that.y));
     }
 
+    /**
+     * Returns whether this glyph has {@link #perish() perished}. Different from
+     * {@code !isAlive()}, this will not change anymore once it is true.
+     */
+    public boolean hasPerished() {
+        return (alive == 2);
+    }
+
     /**
      * Returns whether this glyph is still taking part in the clustering process.
      */
@@ -345,9 +394,40 @@ public class Glyph {
     /**
      * Marks this glyph as not alive: no longer participating in the clustering
      * process.
+     *
+     * <p>Events that were recorded on this glyph are dropped. Moreover, other
+     * glyphs drop the events they {@link #recordedBy recorded} with this glyph
+     * by handle, rather than skipping them when they
+     * {@link #popMergeInto(Queue, Logger) pop} their next merge event.
      */
     public void perish() {
         this.alive = 2;
+        if (mergeEvents != null) {
+            // glyphs we recorded merges with no longer need to know about them
+            mergeEvents.forEach((merge) -> {
+                Glyph with = merge.getOther(this);
+                if (with.recordedBy != null) {
+                    with.recordedBy.remove(merge);
+                }
+            });
+            this.mergeEvents = null;
+        }
+        if (outOfCellEvents != null) {
+            if (B.QUADTREE_NODE_POOLING.get()) {
+                while (!outOfCellEvents.isEmpty()) {
+                    outOfCellEvents.poll().getCell().unpin();
+                }
+            }
+            this.outOfCellEvents = null;
+        }
+        if (recordedBy != null) {
+            // events leave this set when they leave the heap of their tracker,
+            // so every handle still refers to the event it was handed out for
+            for (GlyphMerge merge : recordedBy) {
+                merge.getOther(this).mergeEvents.remove(merge.getHandle());
+            }
+            this.recordedBy = null;
+        }
     }
 
     /**
@@ -371,6 +451,9 @@ public class Glyph {
             throw new RuntimeException("big glyphs don't pop merge events "
                     + "into the shared queue");
         }
+        if (mergeEvents == null) {
+            return false;
+        }
 
         // try to pop a merge event into the queue as long as the previously
         // recorded merge is with a glyph that is still alive... give up as
@@ -378,11 +461,17 @@ public class Glyph {
         while (!mergeEvents.isEmpty()) {
             GlyphMerge merge = mergeEvents.poll();
             Glyph with = merge.getOther(this);
+            if (with.recordedBy != null) {
+                with.recordedBy.remove(merge);
+            }
             if (!with.isAlive() || with.isBig()) {
                 continue; // try the next event
             }
             q.add(merge);
             if (B.TRACK.get() && !B.ROBUST.get()) {
+                if (with.trackedBy == null) {
+                    with.trackedBy = new ArrayList<>();
+                }
                 if (!with.trackedBy.contains(this)) {
                     with.trackedBy.add(this);
                 }
@@ -413,7 +502,7 @@ public class Glyph {
         }
 
         boolean added = false;
-        while (!outOfCellEvents.isEmpty()) {
+        while (outOfCellEvents != null && !outOfCellEvents.isEmpty()) {
             OutOfCell o = outOfCellEvents.poll();
             if (l != null) {
                 l.log(Level.FINEST, "popping {0} into the queue", o);
@@ -439,7 +528,17 @@ public class Glyph {
      * @param event Event involving this glyph.
      */
     public void record(GlyphMerge event) {
-        mergeEvents.add(event);
+        if (mergeEvents == null) {
+            mergeEvents = new AddressableHeap<>(I.MAX_MERGES_TO_RECORD.get());
+        }
+        event.setHandle(mergeEvents.add(event));
+        if (B.TRACK.get() && !B.ROBUST.get()) {
+            Glyph with = event.getOther(this);
+            if (with.recordedBy == null) {
+                with.recordedBy = new OrderedIdentitySet<>();
+            }
+            with.recordedBy.add(event);
+        }
     }
 
     /**
@@ -457,7 +556,13 @@ public class Glyph {
      * @param event Event involving this glyph.
      */
     public void record(OutOfCell event) {
+        if (outOfCellEvents == null) {
+            outOfCellEvents = new AddressableHeap<>(4);
+        }
         outOfCellEvents.add(event);
+        if (B.QUADTREE_NODE_POOLING.get()) {
+            event.getCell().pin();
+        }
     }
 
     /**
@@ -466,7 +571,9 @@ public class Glyph {
      * @param cell Cell to be removed.
      */
     public void removeCell(QuadTree cell) {
-        cells.remove(cell);
+        if (cells != null) {
+            cells.remove(cell);
+        }
     }
 
     /**
@@ -502,6 +609,16 @@ public class Glyph {
         this.n = n;
     }
 
+    /**
+     * Cache the compression level of this glyph. Should only be used by
+     * {@link CompressionThreshold}.
+     *
+     * @param level Compression level of this glyph.
+     */
+    public void setCompressionLevel(int level) {
+        this.level = level;
+    }
+
     @Override
     public String toString() {
         return String.format("glyph [x = %.2f, y = %.2f, n = %d]", x, y, n);
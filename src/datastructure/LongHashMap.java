@@ -0,0 +1,136 @@
+package datastructure;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Map from primitive {@code long} keys to objects. Keys and values are kept in
+ * two parallel arrays that form an open addressing hash table with linear
+ * probing, so that keys are never boxed and no entry objects are created.
+ *
+ * This map does not permit {@code null} values; a {@code null} value marks an
+ * empty bucket. Entries cannot be removed one by one, only all at once.
+ *
+ * @param <V> Type of values in the map.
+ */
+public class LongHashMap<V> {
+
+    /**
+     * Keys of entries, at the same index as their value.
+     */
+    private long[] keys;
+    /**
+     * Number of entries in the map.
+     */
+    private int size;
+    /**
+     * Values of entries, or {@code null} for empty buckets. The length is a
+     * power of two, and at most half of the buckets are in use.
+     */
+    private Object[] values;
+
+
+    /**
+     * Construct an empty map.
+     */
+    public LongHashMap() {
+        this(16);
+    }
+
+    /**
+     * Construct an empty map.
+     *
+     * @param capacity Number of entries the map can hold before it grows.
+     */
+    public LongHashMap(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 4) - 1) << 2;
+        this.keys = new long[length];
+        this.size = 0;
+        this.values = new Object[length];
+    }
+
+
+    /**
+     * Remove all entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the value associated with the given key, or {@code null} when
+     * there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = values.length - 1;
+        for (int b = home(key, mask); values[b] != null; b = (b + 1) & mask) {
+            if (keys[b] == key) {
+                return (V) values[b];
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Associate the given value with the given key.
+     *
+     * @return The value previously associated with the key, or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        int mask = values.length - 1;
+        int b = home(key, mask);
+        for (; values[b] != null; b = (b + 1) & mask) {
+            if (keys[b] == key) {
+                V old = (V) values[b];
+                values[b] = value;
+                return old;
+            }
+        }
+        keys[b] = key;
+        values[b] = value;
+        if (++size > (values.length >> 1)) {
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the home bucket of the given key.
+     */
+    private static int home(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize(int length) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[length];
+        values = new Object[length];
+        int mask = length - 1;
+        for (int i = 0; i < oldValues.length; ++i) {
+            if (oldValues[i] != null) {
+                int b = home(oldKeys[i], mask);
+                while (values[b] != null) {
+                    b = (b + 1) & mask;
+                }
+                keys[b] = oldKeys[i];
+                values[b] = oldValues[i];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,384 @@
+package datastructure;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Set that compares elements by identity and iterates over them in insertion
+ * order. Elements are kept in an array, in the order in which they were added.
+ * While there are only a few, membership is tested by scanning that array.
+ * Once the set grows larger than {@link #MAX_SCAN_SIZE}, an open addressing
+ * hash table is built on top of the array, so that adding, finding and
+ * removing an element take constant expected time, however many elements
+ * there are.
+ *
+ * Removed elements leave a hole in the array when there is a hash table,
+ * which is skipped when iterating. The array is compacted when it is full or
+ * when most of it consists of holes.
+ *
+ * This set does not permit {@code null} elements.
+ *
+ * @param <E> Type of elements in the set.
+ */
+public class OrderedIdentitySet<E> extends AbstractSet<E> {
+
+    /**
+     * Number of elements up to which membership is tested by scanning.
+     */
+    public static final int MAX_SCAN_SIZE = 8;
+
+
+    /**
+     * Elements in insertion order, with {@code null} for removed elements.
+     * Only the first {@link #end} entries are used.
+     */
+    private Object[] elements;
+    /**
+     * Number of entries of {@link #elements} that are in use, including holes.
+     */
+    private int end;
+    /**
+     * Number of modifications, used to detect concurrent modification.
+     */
+    private int modCount;
+    /**
+     * Number of elements in the set.
+     */
+    private int size;
+    /**
+     * Hash table of indices into {@link #elements}, plus one. An entry of 0
+     * denotes an empty bucket. Is {@code null} while there are few elements.
+     * The length is a power of two that is at least twice the length of
+     * {@link #elements}, so that the table is at most half full.
+     */
+    private int[] table;
+
+
+    /**
+     * Construct an empty set.
+     */
+    public OrderedIdentitySet() {
+        this(4);
+    }
+
+    /**
+     * Construct an empty set.
+     *
+     * @param capacity Initial capacity of the set.
+     */
+    public OrderedIdentitySet(int capacity) {
+        this.elements = new Object[Math.max(capacity, 1)];
+        this.end = 0;
+        this.modCount = 0;
+        this.size = 0;
+        this.table = null;
+    }
+
+
+    @Override
+    public boolean add(E e) {
+        Objects.requireNonNull(e);
+        if (indexOf(e) >= 0) {
+            return false;
+        }
+        if (end == elements.length) {
+            // reclaim holes if that frees enough space, grow otherwise
+            compact(size + 1 > elements.length / 2 ?
+                    elements.length + (elements.length >> 1) + 1 :
+                    elements.length);
+        }
+        elements[end] = e;
+        if (table != null) {
+            insert(end);
+        }
+        end++;
+        size++;
+        modCount++;
+        if (table == null && size > MAX_SCAN_SIZE) {
+            rebuildTable();
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, end, null);
+        end = 0;
+        size = 0;
+        table = null;
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return (o != null && indexOf(o) >= 0);
+    }
+
+    /**
+     * Performs the given action for every element, in insertion order. This
+     * does not allocate an iterator.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < end; ++i) {
+            if (elements[i] != null) {
+                action.accept((E) elements[i]);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        if (table != null && end > MAX_SCAN_SIZE && size <= (end >> 2)) {
+            compact(elements.length);
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return toArray(new Object[size]);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size) {
+            a = (T[]) Arrays.copyOf(a, size, a.getClass());
+        }
+        int j = 0;
+        for (int i = 0; i < end; ++i) {
+            if (elements[i] != null) {
+                a[j++] = (T) elements[i];
+            }
+        }
+        if (a.length > size) {
+            a[size] = null;
+        }
+        return a;
+    }
+
+
+    /**
+     * Move all elements to the front of an array of the given length, in
+     * order, and rebuild the hash table if there is one.
+     */
+    private void compact(int capacity) {
+        Object[] compacted = (capacity == elements.length && size == end ?
+                elements : new Object[capacity]);
+        if (compacted != elements || size != end) {
+            int j = 0;
+            for (int i = 0; i < end; ++i) {
+                if (elements[i] != null) {
+                    compacted[j++] = elements[i];
+                }
+            }
+            if (compacted == elements) {
+                Arrays.fill(elements, j, end, null);
+            }
+        }
+        elements = compacted;
+        end = size;
+        modCount++;
+        if (size > MAX_SCAN_SIZE) {
+            rebuildTable();
+        } else {
+            table = null;
+        }
+    }
+
+    /**
+     * Returns the home bucket of the given element.
+     */
+    private int home(Object o) {
+        int h = System.identityHashCode(o);
+        return (h ^ (h >>> 16)) & (table.length - 1);
+    }
+
+    /**
+     * Returns the index of the given element in {@link #elements}, or -1 when
+     * it is not in the set.
+     */
+    private int indexOf(Object o) {
+        if (table == null) {
+            for (int i = 0; i < end; ++i) {
+                if (elements[i] == o) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        for (int b = home(o); table[b] != 0; b = (b + 1) & mask) {
+            if (elements[table[b] - 1] == o) {
+                return table[b] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add the element at the given index of {@link #elements} to the table.
+     */
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int b = home(elements[index]);
+        while (table[b] != 0) {
+            b = (b + 1) & mask;
+        }
+        table[b] = index + 1;
+    }
+
+    private void rebuildTable() {
+        int length = Integer.highestOneBit(elements.length) << 2;
+        if (table == null || table.length != length) {
+            table = new int[length];
+        } else {
+            Arrays.fill(table, 0);
+        }
+        for (int i = 0; i < end; ++i) {
+            if (elements[i] != null) {
+                insert(i);
+            }
+        }
+    }
+
+    /**
+     * Remove the element at the given index of {@link #elements}. Without a
+     * hash table, later elements are shifted to close the gap. With a table,
+     * a hole is left, unless the element is the last one.
+     */
+    private void removeAt(int index) {
+        if (table == null) {
+            System.arraycopy(elements, index + 1, elements, index,
+                    end - index - 1);
+            elements[--end] = null;
+        } else {
+            // find the bucket and delete it by shifting back later entries
+            int mask = table.length - 1;
+            int i = home(elements[index]);
+            while (table[i] != index + 1) {
+                i = (i + 1) & mask;
+            }
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int k = home(elements[table[j] - 1]);
+                // entry in j may move to i if its home is not in (i, j]
+                if (((j - k) & mask) >= ((j - i) & mask)) {
+                    table[i] = table[j];
+                    i = j;
+                }
+            }
+            table[i] = 0;
+            elements[index] = null;
+            while (end > 0 && elements[end - 1] == null) {
+                end--;
+            }
+        }
+        size--;
+        modCount++;
+    }
+
+
+    /**
+     * Iterator over the elements, in insertion order.
+     */
+    private class Itr implements Iterator<E> {
+
+        /**
+         * Index of the next element to return, or {@link #end} if none.
+         */
+        private int cursor;
+        private int expectedModCount;
+        /**
+         * Index of the element last returned, or -1 if none.
+         */
+        private int last;
+
+
+        public Itr() {
+            this.expectedModCount = modCount;
+            this.last = -1;
+            this.cursor = advance(0);
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return (cursor < end);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (cursor >= end) {
+                throw new NoSuchElementException();
+            }
+            last = cursor;
+            cursor = advance(cursor + 1);
+            return (E) elements[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            boolean shifts = (table == null);
+            removeAt(last);
+            if (shifts) {
+                cursor = last;
+            }
+            cursor = advance(cursor);
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+
+        /**
+         * Returns the first index at or after the given one that holds an
+         * element, or {@link #end} if there is none.
+         */
+        private int advance(int index) {
+            while (index < end && elements[index] == null) {
+                index++;
+            }
+            return index;
+        }
+
+    }
+
+}
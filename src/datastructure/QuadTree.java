@@ -5,10 +5,10 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import datastructure.events.OutOfCell.Side;
@@ -28,9 +28,10 @@ import utils.Utils.Timers;
 public class QuadTree implements Iterable<QuadTree> {
 
     /**
-     * Rectangle describing this cell.
+     * Rectangle describing this cell. Its coordinates are read directly, and
+     * it is updated in place when the cell is reused.
      */
-    private Rectangle2D cell;
+    private final Rectangle2D.Double cell;
     /**
      * Parent pointer. Will be {@code null} for the root cell.
      */
@@ -50,17 +51,46 @@ public class QuadTree implements Iterable<QuadTree> {
      */
     private GrowFunction g;
     /**
-     * Glyphs intersecting the cell.
+     * Glyphs intersecting the cell, in the order in which they were added.
      */
-    private List<Glyph> glyphs;
+    private Set<Glyph> glyphs;
     /**
      * Listeners listening to events.
      */
     private List<QuadTreeChangeListener> listeners;
     /**
      * Cache {@link #getNeighbors(Side)} for every side, but only for leaves.
+     * Neighbors are kept in insertion order, and can be found and removed in
+     * constant time.
      */
-    private List<List<QuadTree>> neighbors;
+    private List<Set<QuadTree>> neighbors;
+    /**
+     * Stack of cells that traversals of this QuadTree reuse, so that they do
+     * not allocate. Only the stack of the root cell is used. Traversals may
+     * be nested, since every traversal only pops the cells it pushed itself,
+     * but they must not run on several threads at the same time. The
+     * {@code getLeaves} methods do not use this stack.
+     */
+    private QuadTree[] stack;
+    /**
+     * Number of cells on {@link #stack}.
+     */
+    private int stackSize;
+    /**
+     * Number of pending events that refer to this cell, plus the number of
+     * orphaned children that are kept because they have pins themselves. An
+     * {@link #isOrphan() orphan} can only be reused when this is zero, because
+     * the cell and its ancestors may still be looked at when such an event is
+     * handled.
+     *
+     * @see #pin()
+     */
+    private int pins;
+    /**
+     * Orphaned cells that {@link #splitCell()} can reuse. Only the pool of the
+     * root cell is used, and only when {@link B#QUADTREE_NODE_POOLING} is set.
+     */
+    private List<QuadTree> pool;
 
 
     /**
@@ -101,7 +131,7 @@ public class QuadTree implements Iterable<QuadTree> {
         this.isOrphan = false;
         this.children = null;
         this.g = g;
-        this.glyphs = new ArrayList<>(I.MAX_GLYPHS_PER_CELL.get());
+        this.glyphs = new OrderedIdentitySet<>(I.MAX_GLYPHS_PER_CELL.get());
         if (B.ENABLE_LISTENERS.get()) {
             this.listeners = new ArrayList<>(1);
         } else {
@@ -109,8 +139,12 @@ public class QuadTree implements Iterable<QuadTree> {
         }
         this.neighbors = new ArrayList<>(Side.values().length);
         for (@SuppressWarnings("unused") Side side : Side.values()) {
-            this.neighbors.add(new ArrayList<>());
+            this.neighbors.add(new OrderedIdentitySet<>());
         }
+        this.stack = null;
+        this.stackSize = 0;
+        this.pins = 0;
+        this.pool = null;
     }
 
 
@@ -141,11 +175,13 @@ public class QuadTree implements Iterable<QuadTree> {
             }
             glyphs.clear();
         } else {
-            glyphs = new ArrayList<>(I.MAX_GLYPHS_PER_CELL.get());
+            glyphs = new OrderedIdentitySet<>(I.MAX_GLYPHS_PER_CELL.get());
         }
-        for (List<QuadTree> neighborsOnSide : neighbors) {
+        for (Set<QuadTree> neighborsOnSide : neighbors) {
             neighborsOnSide.clear();
         }
+        pins = 0;
+        pool = null;
         if (B.ENABLE_LISTENERS.get()) {
             for (QuadTreeChangeListener listener : listeners) {
                 listener.clear();
@@ -169,9 +205,9 @@ public class QuadTree implements Iterable<QuadTree> {
      */
     public boolean contains(double x, double y) {
         QuadTree root = getRoot();
-        return (cell.getMinX() <= x && cell.getMinY() <= y &&
-            (x < cell.getMaxX() || x == root.cell.getMaxX()) &&
-            (y < cell.getMaxY() || y == root.cell.getMaxY()));
+        return (cell.x <= x && cell.y <= y &&
+            (x < cell.x + cell.width || x == root.cell.x + root.cell.width) &&
+            (y < cell.y + cell.height || y == root.cell.y + root.cell.height));
     }
 
     /**
@@ -193,17 +229,163 @@ public class QuadTree implements Iterable<QuadTree> {
         return children[Side.quadrant(cell, x, y)].findLeafAt(x, y);
     }
 
+    /**
+     * Performs the given action for every leaf of this QuadTree. Leaves are
+     * visited depth first, in the order of {@link #getChildren()}. Contrary
+     * to {@link #getLeaves()}, this does not allocate anything.
+     *
+     * The action must not split or join cells of this QuadTree. This method
+     * is not thread safe, not even for readers: it uses a stack that is shared
+     * by the whole QuadTree.
+     *
+     * @param action Action to perform on every leaf.
+     */
+    public void forEachLeaf(Consumer<? super QuadTree> action) {
+        QuadTree root = getRoot();
+        int base = root.stackSize;
+        root.push(this);
+        try {
+            while (root.stackSize > base) {
+                QuadTree node = root.pop();
+                if (node.isLeaf()) {
+                    action.accept(node);
+                } else {
+                    for (int i = node.children.length - 1; i >= 0; --i) {
+                        root.push(node.children[i]);
+                    }
+                }
+            }
+        } finally {
+            root.unwind(base);
+        }
+    }
+
+    /**
+     * Performs the given action for every leaf of this QuadTree that has one
+     * side touching the {@code side} border of this cell. This visits the
+     * cells that {@link #getLeaves(Side)} returns, in the same order, without
+     * allocating anything.
+     *
+     * The action must not split or join cells of this QuadTree. This method
+     * is not thread safe, not even for readers: it uses a stack that is shared
+     * by the whole QuadTree.
+     *
+     * @param side Side of cell to find leaves on.
+     * @param action Action to perform on every leaf.
+     */
+    public void forEachLeaf(Side side, Consumer<? super QuadTree> action) {
+        QuadTree root = getRoot();
+        int base = root.stackSize;
+        root.push(this);
+        try {
+            int[] quadrants = side.quadrants();
+            while (root.stackSize > base) {
+                QuadTree node = root.pop();
+                if (node.isLeaf()) {
+                    action.accept(node);
+                } else {
+                    for (int i = quadrants.length - 1; i >= 0; --i) {
+                        root.push(node.children[quadrants[i]]);
+                    }
+                }
+            }
+        } finally {
+            root.unwind(base);
+        }
+    }
+
+    /**
+     * Performs the given action for every leaf of this QuadTree that
+     * intersects the given rectangle. This visits the cells that
+     * {@link #getLeaves(Rectangle2D)} returns, in the same order, without
+     * allocating anything.
+     *
+     * The action must not split or join cells of this QuadTree. This method
+     * is not thread safe, not even for readers: it uses a stack that is shared
+     * by the whole QuadTree.
+     *
+     * @param rectangle The query rectangle.
+     * @param action Action to perform on every leaf.
+     */
+    public void forEachLeaf(Rectangle2D rectangle,
+            Consumer<? super QuadTree> action) {
+        QuadTree root = getRoot();
+        int base = root.stackSize;
+        root.push(this);
+        try {
+            while (root.stackSize > base) {
+                QuadTree node = root.pop();
+                Rectangle2D.Double c = node.cell;
+                if (c.x + c.width < rectangle.getMinX() ||
+                        c.x > rectangle.getMaxX() ||
+                        c.y + c.height < rectangle.getMinY() ||
+                        c.y > rectangle.getMaxY()) {
+                    continue;
+                }
+                if (node.isLeaf()) {
+                    action.accept(node);
+                } else {
+                    for (int i = node.children.length - 1; i >= 0; --i) {
+                        root.push(node.children[i]);
+                    }
+                }
+            }
+        } finally {
+            root.unwind(base);
+        }
+    }
+
+    /**
+     * Performs the given action for every leaf of this QuadTree that
+     * intersects the given glyph at the given point in time. This visits the
+     * cells that {@link #getLeaves(Glyph, double, GrowFunction)} returns, in
+     * the same order, without allocating anything.
+     *
+     * The action must not split or join cells of this QuadTree. This method
+     * is not thread safe, not even for readers: it uses a stack that is shared
+     * by the whole QuadTree.
+     *
+     * @param glyph The glyph to consider.
+     * @param at Timestamp/zoom level at which glyph size is determined.
+     * @param g Function to determine size of glyph. Together with {@code at},
+     *          this is used to decide which cells {@code glyph} intersects.
+     * @param action Action to perform on every leaf.
+     */
+    public void forEachLeaf(Glyph glyph, double at, GrowFunction g,
+            Consumer<? super QuadTree> action) {
+        QuadTree root = getRoot();
+        int base = root.stackSize;
+        root.push(this);
+        try {
+            while (root.stackSize > base) {
+                QuadTree node = root.pop();
+                if (g.intersectAt(glyph, node.cell) > at + Utils.EPS) {
+                    continue;
+                }
+                if (node.isLeaf()) {
+                    action.accept(node);
+                } else {
+                    for (int i = node.children.length - 1; i >= 0; --i) {
+                        root.push(node.children[i]);
+                    }
+                }
+            }
+        } finally {
+            root.unwind(base);
+        }
+    }
+
     public QuadTree[] getChildren() {
         return this.children;
     }
 
-    public List<Glyph> getGlyphs() {
+    public Set<Glyph> getGlyphs() {
         return glyphs;
     }
 
     public List<Glyph> getGlyphsAlive() {
         if (glyphs == null) {
-            return glyphs;
+            return null;
         }
         return glyphs.stream()
                 .filter(Glyph::isAlive)
@@ -211,7 +393,7 @@ public class QuadTree implements Iterable<QuadTree> {
     }
 
     public double getHeight() {
-        return cell.getHeight();
+        return cell.height;
     }
 
     public List<QuadTree> getLeaves() {
@@ -283,7 +465,7 @@ public class QuadTree implements Iterable<QuadTree> {
      *
      * @param side Side of cell to find neighbors on.
      */
-    public List<QuadTree> getNeighbors(Side side) {
+    public Set<QuadTree> getNeighbors(Side side) {
         return neighbors.get(side.ordinal());
     }
 
@@ -355,15 +537,15 @@ public class QuadTree implements Iterable<QuadTree> {
     }
 
     public double getWidth() {
-        return cell.getWidth();
+        return cell.width;
     }
 
     public double getX() {
-        return cell.getX();
+        return cell.x;
     }
 
     public double getY() {
-        return cell.getY();
+        return cell.y;
     }
 
     /**
@@ -392,8 +574,7 @@ public class QuadTree implements Iterable<QuadTree> {
         Timers.start("[QuadTree] insert");
         int inserted = 0; // keep track of number of cells we insert into
         if (isLeaf()) {
-            if (!glyphs.contains(glyph)) {
-                glyphs.add(glyph);
+            if (glyphs.add(glyph)) {
                 glyph.addCell(this);
                 inserted = 1;
             }
@@ -417,8 +598,8 @@ public class QuadTree implements Iterable<QuadTree> {
      */
     public boolean insertCenterOf(Glyph glyph) {
         Stats.count("QuadTree insertCenterOf");
-        if (glyph.getX() < cell.getMinX() || glyph.getX() > cell.getMaxX() ||
-                glyph.getY() < cell.getMinY() || glyph.getY() > cell.getMaxY()) {
+        if (glyph.getX() < cell.x || glyph.getX() > cell.x + cell.width ||
+                glyph.getY() < cell.y || glyph.getY() > cell.y + cell.height) {
             Stats.count("QuadTree insertCenterOf", false);
             return false;
         }
@@ -426,8 +607,7 @@ public class QuadTree implements Iterable<QuadTree> {
         // can we insert here?
         Timers.start("[QuadTree] insert");
         if (isLeaf() && glyphs.size() < I.MAX_GLYPHS_PER_CELL.get()) {
-            if (!glyphs.contains(glyph)) {
-                glyphs.add(glyph);
+            if (glyphs.add(glyph)) {
                 glyph.addCell(this);
             }
             return true;
@@ -443,6 +623,37 @@ public class QuadTree implements Iterable<QuadTree> {
         return true;
     }
 
+    /**
+     * Insert the centers of all given glyphs into this QuadTree. The result is
+     * exactly the same as {@link #insertCenterOf(Glyph) inserting} the glyphs
+     * one by one in the given order: the same cells are split in the same
+     * order, and glyphs and neighbors are recorded in the same order.
+     *
+     * When this cell is an empty leaf, the QuadTree is built in one go rather
+     * than by descending from this cell for every glyph and redistributing
+     * glyphs on every split. Glyphs are sorted by their Morton code, which is
+     * determined using the same quadrant tests that insertion uses.
+     *
+     * @param glyphs Glyphs of which to insert the centers, in order.
+     * @return Number of glyphs of which the center has been inserted.
+     */
+    public int insertCentersOf(List<Glyph> glyphs) {
+        if (!isLeaf() || !this.glyphs.isEmpty() ||
+                glyphs.size() <= I.MAX_GLYPHS_PER_CELL.get()) {
+            int inserted = 0;
+            for (Glyph glyph : glyphs) {
+                if (insertCenterOf(glyph)) {
+                    inserted++;
+                }
+            }
+            return inserted;
+        }
+        Timers.start("[QuadTree] bulk insert");
+        int inserted = new BulkLoad(this, glyphs).load();
+        Timers.stop("[QuadTree] bulk insert");
+        return inserted;
+    }
+
     /**
      * Returns whether this cell is an orphan, which it is when its parent has
      * joined and forgot about its children.
@@ -485,6 +696,23 @@ public class QuadTree implements Iterable<QuadTree> {
             .iterator();
     }
 
+    /**
+     * Record that a pending event refers to this cell. This keeps the cell
+     * and its ancestors from being reused while the event has not been
+     * handled. Every call must be matched by one call to {@link #unpin()} once
+     * the event has been handled or discarded; an event that is dropped
+     * without that only keeps cells from being reused.
+     *
+     * Only this cell is updated, so different leaves can be pinned from
+     * different threads. Does nothing unless {@link B#QUADTREE_NODE_POOLING}
+     * is set.
+     */
+    public void pin() {
+        if (B.QUADTREE_NODE_POOLING.get()) {
+            pins++;
+        }
+    }
+
     /**
      * Remove the given glyph from this cell, if it is associated with it.
      * This method does <i>not</i> remove the cell from the glyph.
@@ -585,6 +813,23 @@ public class QuadTree implements Iterable<QuadTree> {
                 cell.getMinX(), cell.getMaxX(), cell.getMinY(), cell.getMaxY());
     }
 
+    /**
+     * Record that an event that {@link #pin() pinned} this cell has been
+     * handled or discarded. Orphans that are no longer referred to by any
+     * pending event are made available for reuse, and so are orphaned
+     * ancestors that were only kept for them.
+     */
+    public void unpin() {
+        if (!B.QUADTREE_NODE_POOLING.get()) {
+            return;
+        }
+        QuadTree node = this;
+        while (--node.pins == 0 && node.isOrphan) {
+            node.getRoot().recycle(node);
+            node = node.parent;
+        }
+    }
+
 
     /**
      * Actual implementation of {@link #getLeaves(Glyph, double, GrowFunction)}.
@@ -675,7 +920,7 @@ public class QuadTree implements Iterable<QuadTree> {
 
     /**
      * If the total number of glyphs of all children is at most
-     * {@link #MAX_GLYPHS_PER_CELL} and those children are leaves, delete the
+     * {@link I#getJoinThreshold()} and those children are leaves, delete the
      * children (thus making this cell a leaf), and adopt the glyphs of the
      * deleted children in this cell.
      *
@@ -697,19 +942,22 @@ public class QuadTree implements Iterable<QuadTree> {
             }
             s += child.getGlyphsAlive().size();
         }
-        if (s > I.MAX_GLYPHS_PER_CELL.get()) {
+        if (s > I.getJoinThreshold()) {
+            // keep track of joins that only hysteresis prevents
+            if (s <= I.MAX_GLYPHS_PER_CELL.get()) {
+                Stats.count("QuadTree join held back");
+            }
             Timers.stop("[QuadTree] join");
             return false;
         }
 
         // do a join, become a leaf, adopt glyphs and neighbors of children
         Stats.count("QuadTree join cells");
-        glyphs = new ArrayList<>(I.MAX_GLYPHS_PER_CELL.get());
+        glyphs = new OrderedIdentitySet<>(I.MAX_GLYPHS_PER_CELL.get());
         for (int quadrant = 0; quadrant < children.length; ++quadrant) {
             QuadTree child = children[quadrant];
             for (Glyph glyph : child.getGlyphsAlive()) {
-                if (!glyphs.contains(glyph)) {
-                    glyphs.add(glyph);
+                if (glyphs.add(glyph)) {
                     glyph.addCell(this);
                 }
                 glyph.removeCell(child);
@@ -718,21 +966,17 @@ public class QuadTree implements Iterable<QuadTree> {
             child.isOrphan = true;
             // adopt neighbors, keep neighbors of orphan intact
             // only adopt neighbors outside of the joined cell
-            // also, be careful to not have duplicate neighbors
+            // (being a set, this does not introduce duplicate neighbors)
             for (Side side : Side.quadrant(quadrant)) {
-                List<QuadTree> ns = neighbors.get(side.ordinal());
-                for (QuadTree n : child.neighbors.get(side.ordinal())) {
-                    if (!ns.contains(n)) {
-                        ns.add(n);
-                    }
-                }
+                neighbors.get(side.ordinal()).addAll(
+                        child.neighbors.get(side.ordinal()));
             }
         }
         // update neighbor pointers of neighbors; point to this instead of
         // any of what previously were our children, but are now orphans
         for (Side side : Side.values()) {
             for (QuadTree neighbor : neighbors.get(side.ordinal())) {
-                List<QuadTree> neighborNeighbors = neighbor.neighbors.get(
+                Set<QuadTree> neighborNeighbors = neighbor.neighbors.get(
                     side.opposite().ordinal());
                 for (QuadTree child : children) {
                     neighborNeighbors.remove(child);
@@ -743,6 +987,16 @@ public class QuadTree implements Iterable<QuadTree> {
             }
         }
         // we become a leaf now, sorry kids
+        if (B.QUADTREE_NODE_POOLING.get()) {
+            QuadTree root = getRoot();
+            for (QuadTree child : children) {
+                if (child.pins == 0) {
+                    root.recycle(child);
+                } else {
+                    pins++; // keep this cell as long as the child is kept
+                }
+            }
+        }
         children = null;
         Timers.stop("[QuadTree] join");
 
@@ -762,6 +1016,67 @@ public class QuadTree implements Iterable<QuadTree> {
         return true;
     }
 
+    /**
+     * Returns a leaf cell at the given coordinates, without parent, glyphs or
+     * neighbors. It is taken from the {@link #pool} of this (root) cell when
+     * possible, and newly constructed otherwise.
+     */
+    private QuadTree obtain(double x, double y, double w, double h,
+            GrowFunction g) {
+        if (pool == null || pool.isEmpty()) {
+            return new QuadTree(x, y, w, h, g);
+        }
+        Stats.count("QuadTree reuse cell");
+        QuadTree node = pool.remove(pool.size() - 1);
+        node.cell.setRect(x, y, w, h);
+        node.parent = null;
+        node.isOrphan = false;
+        node.children = null;
+        node.g = g;
+        node.glyphs = new OrderedIdentitySet<>(I.MAX_GLYPHS_PER_CELL.get());
+        node.pins = 0;
+        for (Set<QuadTree> neighborsOnSide : node.neighbors) {
+            neighborsOnSide.clear();
+        }
+        return node;
+    }
+
+    /**
+     * Pop a cell from the {@link #stack} of this (root) cell.
+     */
+    private QuadTree pop() {
+        QuadTree node = stack[--stackSize];
+        stack[stackSize] = null;
+        return node;
+    }
+
+    /**
+     * Push a cell on the {@link #stack} of this (root) cell.
+     */
+    private void push(QuadTree node) {
+        if (stack == null) {
+            stack = new QuadTree[16];
+        } else if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stackSize);
+        }
+        stack[stackSize++] = node;
+    }
+
+    /**
+     * Add the given orphan to the {@link #pool} of this (root) cell. Cells
+     * that listeners are attached to are never reused, as the listeners
+     * would otherwise see the cell change under their hands.
+     */
+    private void recycle(QuadTree orphan) {
+        if (orphan.listeners != null && !orphan.listeners.isEmpty()) {
+            return;
+        }
+        if (pool == null) {
+            pool = new ArrayList<>();
+        }
+        pool.add(orphan);
+    }
+
     /**
      * If not a leaf yet, create child cells and associate them with this cell
      * as being their parent. This method does <em>not</em> reassign any glyphs
@@ -790,8 +1105,9 @@ public class QuadTree implements Iterable<QuadTree> {
         if (w / 2 < D.MIN_CELL_SIZE.get() || h / 2 < D.MIN_CELL_SIZE.get()) {
             throw new RuntimeException("cannot split a tiny cell");
         }
+        QuadTree root = getRoot();
         for (int i = 0; i < 4; ++i) {
-            this.children[i] = new QuadTree(
+            this.children[i] = root.obtain(
                     x + (i % 2 == 0 ? 0 : w / 2),
                     y + (i < 2 ? 0 : h / 2),
                     w / 2, h / 2, g
@@ -802,7 +1118,7 @@ public class QuadTree implements Iterable<QuadTree> {
         // update neighbors of neighbors; we split now
         for (Side side : Side.values()) {
             for (QuadTree neighbor : neighbors.get(side.ordinal())) {
-                List<QuadTree> neighborsOnOurSide = neighbor.neighbors.get(
+                Set<QuadTree> neighborsOnOurSide = neighbor.neighbors.get(
                     side.opposite().ordinal());
                 neighborsOnOurSide.remove(this);
                 for (int quadrant : side.quadrants()) {
@@ -819,21 +1135,23 @@ public class QuadTree implements Iterable<QuadTree> {
 
         // update neighbors
         for (Side side : Side.values()) {
-            List<QuadTree> neighborsOnSide = neighbors.get(side.ordinal());
+            Set<QuadTree> neighborsOnSide = neighbors.get(side.ordinal());
             for (int quadrant : side.quadrants()) {
                 double[] qi = Side.interval(children[quadrant].cell, side);
                 // distribute own neighbors over children
-                children[quadrant].neighbors.get(side.ordinal()).addAll(
-                    neighborsOnSide.stream()
-                        // ensure that the neighbor is "in range" of the child
-                        // cell; technically, we would need to consider the
-                        // side.opposite() of the neighbor, but since it reduces
-                        // to a 1D comparison with the exact same interval, we
-                        // save ourselves some calculation and do it like this
-                        .filter((neighbor) -> Utils.openIntervalsOverlap(qi,
-                            Side.interval(neighbor.cell, side)))
-                        .collect(Collectors.toList())
-                );
+                Set<QuadTree> childNeighbors =
+                        children[quadrant].neighbors.get(side.ordinal());
+                for (QuadTree neighbor : neighborsOnSide) {
+                    // ensure that the neighbor is "in range" of the child
+                    // cell; technically, we would need to consider the
+                    // side.opposite() of the neighbor, but since it reduces
+                    // to a 1D comparison with the exact same interval, we
+                    // save ourselves some calculation and do it like this
+                    if (Utils.openIntervalsOverlap(qi,
+                            Side.interval(neighbor.cell, side))) {
+                        childNeighbors.add(neighbor);
+                    }
+                }
                 // the children are neighbors of each other; record this
                 children[quadrant].neighbors.get(side.opposite().ordinal()).add(
                     children[Side.quadrantNeighbor(quadrant, side.opposite())]);
@@ -842,6 +1160,249 @@ public class QuadTree implements Iterable<QuadTree> {
         }
     }
 
+    /**
+     * Pop all cells from the {@link #stack} of this (root) cell until the
+     * given number of cells is left. This is a no-op for traversals that
+     * completed normally.
+     */
+    private void unwind(int base) {
+        if (stackSize > base) {
+            Arrays.fill(stack, base, stackSize, null);
+            stackSize = base;
+        }
+    }
+
+
+    /**
+     * Builds a QuadTree from a list of glyph centers in one go.
+     *
+     * Glyphs are sorted on their Morton code by stably partitioning them over
+     * the quadrants of a cell, level by level. Every cell then corresponds to
+     * a range of glyphs that are in the cell, in insertion order. This tells
+     * which cells are split (those with too many glyphs), when they are split
+     * (when their glyph number {@link I#MAX_GLYPHS_PER_CELL} + 1 is inserted)
+     * and which glyphs a cell has held before it was split (the first ones).
+     */
+    private static class BulkLoad {
+
+        /**
+         * Glyphs of which the center is in the {@link #root}, in order.
+         */
+        private final Glyph[] glyphs;
+        /**
+         * Maximum number of glyphs per cell.
+         */
+        private final int max;
+        /**
+         * Indices into {@link #glyphs}, sorted by Morton code once
+         * {@link #partition} is done.
+         */
+        private final int[] order;
+        /**
+         * Scratch space used when partitioning {@link #order}.
+         */
+        private final int[] buffer;
+        /**
+         * Cell that is built.
+         */
+        private final QuadTree root;
+        /**
+         * Cells that need to be split.
+         */
+        private final List<Split> splits;
+        /**
+         * Coordinates of the centers of {@link #glyphs}.
+         */
+        private final double[] xs;
+        private final double[] ys;
+
+
+        public BulkLoad(QuadTree root, List<Glyph> glyphs) {
+            Rectangle2D r = root.cell;
+            List<Glyph> inside = new ArrayList<>(glyphs.size());
+            for (Glyph glyph : glyphs) {
+                // same test as in QuadTree#insertCenterOf(Glyph)
+                if (glyph.getX() >= r.getMinX() && glyph.getX() <= r.getMaxX() &&
+                        glyph.getY() >= r.getMinY() && glyph.getY() <= r.getMaxY()) {
+                    inside.add(glyph);
+                }
+            }
+            int n = inside.size();
+            this.glyphs = inside.toArray(new Glyph[n]);
+            this.max = I.MAX_GLYPHS_PER_CELL.get();
+            this.order = new int[n];
+            this.buffer = new int[n];
+            this.root = root;
+            this.splits = new ArrayList<>();
+            this.xs = new double[n];
+            this.ys = new double[n];
+            for (int i = 0; i < n; ++i) {
+                this.order[i] = i;
+                this.xs[i] = this.glyphs[i].getX();
+                this.ys[i] = this.glyphs[i].getY();
+            }
+        }
+
+
+        /**
+         * Build the QuadTree and return the number of glyphs inserted.
+         */
+        public int load() {
+            Split rootSplit = partition(null, -1, root.getX(), root.getY(),
+                    root.getWidth(), root.getHeight(), 0, glyphs.length, 0);
+            // split cells in the order in which insertion would split them;
+            // that is the order in which they overflow, and parents go first
+            splits.sort((a, b) -> (a.trigger != b.trigger ?
+                    Integer.compare(a.trigger, b.trigger) :
+                    Integer.compare(a.depth, b.depth)));
+            for (Split split : splits) {
+                split.cell = (split.parent == null ? root :
+                        split.parent.cell.children[split.quadrant]);
+                split.cell.splitCell();
+                if (max > 0) {
+                    // only maintain glyphs in leaves
+                    split.cell.glyphs = null;
+                }
+                if (B.ENABLE_LISTENERS.get()) {
+                    for (QuadTreeChangeListener listener : split.cell.listeners) {
+                        listener.split(0);
+                    }
+                }
+            }
+            assign(root, rootSplit, 0, glyphs.length);
+            return glyphs.length;
+        }
+
+
+        /**
+         * Associate glyphs with the given cell and its descendants. A glyph
+         * is associated with all cells that held it at some point, from the
+         * top down, which is what {@link Glyph#addCell(QuadTree)} would be
+         * called with when inserting glyphs one by one.
+         */
+        private void assign(QuadTree cell, Split split, int lo, int hi) {
+            if (split == null) {
+                for (int i = lo; i < hi; ++i) {
+                    Glyph glyph = glyphs[order[i]];
+                    cell.glyphs.add(glyph);
+                    glyph.addCell(cell);
+                }
+            } else {
+                for (int i : split.held) {
+                    glyphs[i].addCell(cell);
+                }
+                for (int q = 0; q < 4; ++q) {
+                    assign(cell.children[q], split.children[q],
+                            split.bounds[q], split.bounds[q + 1]);
+                }
+            }
+        }
+
+        /**
+         * Stably partition the given range of {@link #order} over the
+         * quadrants of the given cell, recursively, as long as the cell has
+         * too many glyphs. Returns how the cell is split, or {@code null} if
+         * it does not need to be split.
+         */
+        private Split partition(Split parent, int quadrant, double x, double y,
+                double w, double h, int lo, int hi, int depth) {
+            if (hi - lo <= max) {
+                return null;
+            }
+            if (w / 2 < D.MIN_CELL_SIZE.get() || h / 2 < D.MIN_CELL_SIZE.get()) {
+                throw new RuntimeException("cannot split a tiny cell");
+            }
+            Split split = new Split(parent, quadrant, depth,
+                    Arrays.copyOfRange(order, lo, lo + max), order[lo + max]);
+            splits.add(split);
+            // same computation as Side#quadrant(Rectangle2D, double, double)
+            double cx = x + w / 2.0;
+            double cy = y + h / 2.0;
+            int[] counts = new int[4];
+            for (int i = lo; i < hi; ++i) {
+                counts[quadrant(xs[order[i]], ys[order[i]], cx, cy)]++;
+            }
+            split.bounds[0] = lo;
+            for (int q = 0; q < 4; ++q) {
+                split.bounds[q + 1] = split.bounds[q] + counts[q];
+            }
+            int[] next = Arrays.copyOf(split.bounds, 4);
+            for (int i = lo; i < hi; ++i) {
+                buffer[next[quadrant(xs[order[i]], ys[order[i]], cx, cy)]++] =
+                        order[i];
+            }
+            System.arraycopy(buffer, lo, order, lo, hi - lo);
+            // same computation as QuadTree#splitCell()
+            for (int q = 0; q < 4; ++q) {
+                split.children[q] = partition(split, q,
+                        x + (q % 2 == 0 ? 0 : w / 2),
+                        y + (q < 2 ? 0 : h / 2),
+                        w / 2, h / 2, split.bounds[q], split.bounds[q + 1],
+                        depth + 1);
+            }
+            return split;
+        }
+
+        private static int quadrant(double x, double y, double cx, double cy) {
+            return (y < cy ? 0 : 2) + (x < cx ? 0 : 1);
+        }
+
+
+        /**
+         * A cell that needs to be split.
+         */
+        private static class Split {
+
+            /**
+             * Boundaries of the ranges of glyphs in every child quadrant.
+             */
+            private final int[] bounds;
+            /**
+             * Cell that is split, known once the split has been performed.
+             */
+            private QuadTree cell;
+            /**
+             * How children are split, {@code null} for children that are not.
+             */
+            private final Split[] children;
+            /**
+             * Depth of the cell in the tree.
+             */
+            private final int depth;
+            /**
+             * Glyphs that the cell holds before it is split, in order.
+             */
+            private final int[] held;
+            /**
+             * Split of the parent cell, {@code null} for the root.
+             */
+            private final Split parent;
+            /**
+             * Quadrant of the cell in its parent.
+             */
+            private final int quadrant;
+            /**
+             * Index of the glyph that causes the split when inserted.
+             */
+            private final int trigger;
+
+
+            public Split(Split parent, int quadrant, int depth, int[] held,
+                    int trigger) {
+                this.bounds = new int[5];
+                this.held = held;
+                this.cell = null;
+                this.children = new Split[4];
+                this.depth = depth;
+                this.parent = parent;
+                this.quadrant = quadrant;
+                this.trigger = trigger;
+            }
+
+        }
+
+    }
+
 
     /**
      * Iterator for QuadTrees.
@@ -852,7 +1413,7 @@ public class QuadTree implements Iterable<QuadTree> {
 
 
         public Quaderator(QuadTree quadTree) {
-            this.toVisit = new LinkedList<>();
+            this.toVisit = new ArrayDeque<>();
             this.toVisit.add(quadTree);
         }
 
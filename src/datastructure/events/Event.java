@@ -41,6 +41,14 @@ public abstract class Event implements Comparable<Event> {
             this.priority = priority;
         }
 
+        /**
+         * Returns the priority of this type. When two events occur at the same
+         * time, the one with the lowest priority is handled first.
+         */
+        public int getPriority() {
+            return priority;
+        }
+
         @Override
         public String toString() {
             if (cache == null) {
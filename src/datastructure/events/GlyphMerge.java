@@ -8,6 +8,13 @@ import datastructure.growfunction.GrowFunction;
  */
 public class GlyphMerge extends Event {
 
+    /**
+     * Handle of this event in the heap of the glyph that recorded it, or -1
+     * if it has not been recorded.
+     */
+    private int handle;
+
+
     public GlyphMerge(Glyph a, Glyph b, GrowFunction g) {
         this(a, b, g.intersectAt(a, b));
     }
@@ -16,6 +23,17 @@ public class GlyphMerge extends Event {
         super(at, 2);
         this.glyphs[0] = a;
         this.glyphs[1] = b;
+        this.handle = -1;
+    }
+
+    /**
+     * Returns the handle of this event in the heap of the glyph that recorded
+     * it, or -1 if it has not been recorded.
+     *
+     * @see Glyph#record(GlyphMerge)
+     */
+    public int getHandle() {
+        return handle;
     }
 
     public Glyph getOther(Glyph glyph) {
@@ -30,6 +48,13 @@ public class GlyphMerge extends Event {
         return Type.MERGE;
     }
 
+    /**
+     * Set the handle of this event in the heap of the glyph that records it.
+     */
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     /**
      * Returns a new {@link UncertainGlyphMerge} instance built on this event.
      */
@@ -19,6 +19,21 @@ public class OutOfCell extends Event {
         private int[] quadrants;
 
 
+        static {
+            // filled in eagerly, so that concurrent callers never see an
+            // array that is still being filled
+            for (Side side : values()) {
+                side.others = new Side[3];
+                int i = 0;
+                for (Side that : values()) {
+                    if (that != side) {
+                        side.others[i++] = that;
+                    }
+                }
+            }
+        }
+
+
         private Side(int quadrant1, int quadrant2) {
             this.others = null;
             this.quadrants = new int[] {quadrant1, quadrant2};
@@ -124,15 +139,6 @@ public class OutOfCell extends Event {
         }
 
         public Side[] others() {
-            if (others == null) {
-                others = new Side[3];
-                int i = 0;
-                for (Side that : values()) {
-                    if (that != this) {
-                        others[i++] = that;
-                    }
-                }
-            }
             return others;
         }
 
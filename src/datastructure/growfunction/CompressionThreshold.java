@@ -1,5 +1,7 @@
 package datastructure.growfunction;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 
@@ -16,15 +18,13 @@ import datastructure.Glyph;
 public class CompressionThreshold {
 
     /**
-     * Threshold object (re)used for querying, to avoid repeated construction of
-     * Threshold objects.
+     * Thresholds by {@link Threshold#level level}, minus one.
      */
-    private static final Threshold QUERY = new Threshold(0);
-
-
+    private List<Threshold> levels;
     private NavigableSet<Threshold> thresholds;
 
     public CompressionThreshold() {
+        this.levels = new ArrayList<>();
         this.thresholds = new TreeSet<Threshold>();
     }
 
@@ -36,8 +36,11 @@ public class CompressionThreshold {
      */
     public void add(int threshold, double compression) {
         if (Double.isFinite(compression)) {
-            thresholds.add(new Threshold(
-                    thresholds.size() + 1, threshold, compression));
+            Threshold t = new Threshold(
+                    thresholds.size() + 1, threshold, compression);
+            if (thresholds.add(t)) {
+                levels.add(t);
+            }
         }
     }
 
@@ -45,6 +48,7 @@ public class CompressionThreshold {
      * Clear all thresholds recorded so far.
      */
     public void clear() {
+        levels.clear();
         thresholds.clear();
     }
 
@@ -127,12 +131,17 @@ public class CompressionThreshold {
      * @param glyph Glyph to find threshold for.
      */
     private Threshold getThreshold(Glyph glyph) {
-        if (!glyph.threshold.isSet()) {
-            QUERY.threshold = glyph.getN();
-            glyph.threshold.set(thresholds.ceiling(QUERY));
+        // the level cached on the glyph is 0 when no threshold applies
+        int level = glyph.getCompressionLevel();
+        if (level < 0 || level > levels.size()) {
+            // the result is cached, so a query object is constructed only
+            // once per glyph; not sharing one keeps this thread-safe
+            Threshold toUse = thresholds.ceiling(new Threshold(glyph.getN()));
+            level = (toUse == null ? 0 : toUse.level);
+            glyph.setCompressionLevel(level);
         }
 
-        return glyph.threshold.get();
+        return (level == 0 ? null : levels.get(level - 1));
     }
 
 
@@ -140,7 +149,7 @@ public class CompressionThreshold {
 
         private final int level;
         private final double compression;
-        private int threshold; // not final because of QUERY
+        private final int threshold;
 
         public Threshold(int threshold) {
             this(-1, threshold);
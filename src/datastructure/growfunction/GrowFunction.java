@@ -12,6 +12,16 @@ import java.util.regex.Pattern;
 import datastructure.Glyph;
 import datastructure.QuadTree;
 import datastructure.events.OutOfCell.Side;
+import datastructure.growfunction.fused.BoundedLogarithmicCirclesGrowFunction;
+import datastructure.growfunction.fused.BoundedLogarithmicSquaresGrowFunction;
+import datastructure.growfunction.fused.LevelCirclesGrowFunction;
+import datastructure.growfunction.fused.LevelSquaresGrowFunction;
+import datastructure.growfunction.fused.LinearAreaCirclesGrowFunction;
+import datastructure.growfunction.fused.LinearAreaSquaresGrowFunction;
+import datastructure.growfunction.fused.LinearCirclesGrowFunction;
+import datastructure.growfunction.fused.LinearSquaresGrowFunction;
+import datastructure.growfunction.fused.LogarithmicCirclesGrowFunction;
+import datastructure.growfunction.fused.LogarithmicSquaresGrowFunction;
 import datastructure.growfunction.shape.CirclesGrowShape;
 import datastructure.growfunction.shape.GrowShape;
 import datastructure.growfunction.shape.SquaresGrowShape;
@@ -23,6 +33,7 @@ import datastructure.growfunction.speed.LinearGrowSpeed;
 import datastructure.growfunction.speed.LogarithmicGrowSpeed;
 import gui.GrowingGlyphs;
 import gui.Settings.Setting;
+import utils.Constants.B;
 import utils.Constants.S;
 
 /**
@@ -57,7 +68,7 @@ public class GrowFunction implements GrowShape, GrowSpeed {
             // construct growfunctions for all combinations
             for (Class<? extends GrowSpeed> speed : speeds) {
                 for (Class<? extends GrowShape> shape : shapes) {
-                    GrowFunction g = new GrowFunction(shape, speed);
+                    GrowFunction g = create(shape, speed);
                     ALL.put(g.getName(), g);
                 }
             }
@@ -65,6 +76,49 @@ public class GrowFunction implements GrowShape, GrowSpeed {
         return ALL;
     }
 
+    /**
+     * Returns a new grow function that grows glyphs with the given shape and
+     * speed. When {@link B#FUSED_GROW_FUNCTIONS enabled} and available, this
+     * is a specialised grow function for that particular combination, which
+     * computes the same results as the generic {@link GrowFunction} but calls
+     * its shape and speed directly.
+     *
+     * @param shape Function that determines shape of all glyphs.
+     * @param speed Function that determines speed at which glyphs grow.
+     * @see #GrowFunction(Class, Class)
+     */
+    public static GrowFunction create(Class<? extends GrowShape> shape,
+            Class<? extends GrowSpeed> speed) {
+        if (B.FUSED_GROW_FUNCTIONS.get()) {
+            if (shape == CirclesGrowShape.class) {
+                if (speed == LevelGrowSpeed.class) {
+                    return new LevelCirclesGrowFunction();
+                } else if (speed == LinearGrowSpeed.class) {
+                    return new LinearCirclesGrowFunction();
+                } else if (speed == LinearAreaGrowSpeed.class) {
+                    return new LinearAreaCirclesGrowFunction();
+                } else if (speed == LogarithmicGrowSpeed.class) {
+                    return new LogarithmicCirclesGrowFunction();
+                } else if (speed == BoundedLogarithmicGrowSpeed.class) {
+                    return new BoundedLogarithmicCirclesGrowFunction();
+                }
+            } else if (shape == SquaresGrowShape.class) {
+                if (speed == LevelGrowSpeed.class) {
+                    return new LevelSquaresGrowFunction();
+                } else if (speed == LinearGrowSpeed.class) {
+                    return new LinearSquaresGrowFunction();
+                } else if (speed == LinearAreaGrowSpeed.class) {
+                    return new LinearAreaSquaresGrowFunction();
+                } else if (speed == LogarithmicGrowSpeed.class) {
+                    return new LogarithmicSquaresGrowFunction();
+                } else if (speed == BoundedLogarithmicGrowSpeed.class) {
+                    return new BoundedLogarithmicSquaresGrowFunction();
+                }
+            }
+        }
+        return new GrowFunction(shape, speed);
+    }
+
 
     /**
      * Thresholds that apply to this grow function.
@@ -105,6 +159,8 @@ public class GrowFunction implements GrowShape, GrowSpeed {
      *
      * This constructor variant constructs fresh instances of the given functions
      * and immediately links them to the created {@link GrowFunction} instance.
+     * Rather than calling this constructor, consider using
+     * {@link #create(Class, Class)}.
      *
      * @param shape Function that determines shape of all glyphs.
      * @param speed Function that determines speed at which glyphs grow.
@@ -112,8 +168,8 @@ public class GrowFunction implements GrowShape, GrowSpeed {
     public GrowFunction(Class<? extends GrowShape> shape,
             Class<? extends GrowSpeed> speed) {
         try {
-            this.shape = shape.getConstructor(this.getClass()).newInstance(this);
-            this.speed = speed.getConstructor(this.getClass()).newInstance(this);
+            this.shape = shape.getConstructor(GrowFunction.class).newInstance(this);
+            this.speed = speed.getConstructor(GrowFunction.class).newInstance(this);
         } catch (Exception e) {
             throw new ExceptionInInitializerError(e);
         }
@@ -134,11 +190,28 @@ public class GrowFunction implements GrowShape, GrowSpeed {
         return border(thresholds.getCompressionLevel(g), at);
     }
 
+    /**
+     * Returns whether the batched {@link #intersectAt(Glyph, double[], double[],
+     * int[], int, int, double[])} can currently be used instead of computing
+     * intersections one pair of glyphs at a time. That is the case when glyphs
+     * are not compressed and do not have borders.
+     */
+    public boolean canIntersectInBatch() {
+        return (thresholds.size() == 0 &&
+                !GrowingGlyphs.SETTINGS.getBoolean(Setting.BORDERS));
+    }
+
     @Override
     public double dist(Glyph a, Glyph b) {
         return shape.dist(a, b);
     }
 
+    @Override
+    public void dist(double x, double y, double[] xs, double[] ys, int start,
+            int end, double[] out) {
+        shape.dist(x, y, xs, ys, start, end, out);
+    }
+
 
     @Override
     public double dist(Rectangle2D rect, Glyph g) {
@@ -239,11 +312,27 @@ public class GrowFunction implements GrowShape, GrowSpeed {
         return speed.intersectAt(a, b);
     }
 
+    @Override
+    public double intersectAt(double d, double wa, double wb) {
+        return speed.intersectAt(d, wa, wb);
+    }
+
+    @Override
+    public void intersectAt(Glyph from, double[] xs, double[] ys, int[] ns,
+            int start, int end, double[] out) {
+        speed.intersectAt(from, xs, ys, ns, start, end, out);
+    }
+
     @Override
     public double intersectAt(Rectangle2D r, Glyph glyph) {
         return speed.intersectAt(r, glyph);
     }
 
+    @Override
+    public double intersectAt(double d, double w) {
+        return speed.intersectAt(d, w);
+    }
+
     /**
      * Same as {@link #intersectAt(Rectangle2D, Glyph)}, just with different order
      * of parameters. This is a convenience function.
@@ -0,0 +1,69 @@
+package datastructure.growfunction.fused;
+
+import java.awt.geom.Rectangle2D;
+
+import datastructure.Glyph;
+import datastructure.growfunction.GrowFunction;
+import datastructure.growfunction.shape.CirclesGrowShape;
+import datastructure.growfunction.speed.BoundedLogarithmicGrowSpeed;
+
+/**
+ * Grow function for circles that grow logarithmically in their weight, up to a
+ * maximum radius.
+ *
+ * @see GrowFunction#create(Class, Class)
+ */
+public final class BoundedLogarithmicCirclesGrowFunction extends GrowFunction {
+
+    /**
+     * Shape of glyphs that is implied by this grow function.
+     */
+    private final CirclesGrowShape shape;
+    /**
+     * Speed that is used by this grow function.
+     */
+    private final BoundedLogarithmicGrowSpeed speed;
+
+
+    public BoundedLogarithmicCirclesGrowFunction() {
+        super(CirclesGrowShape.class, BoundedLogarithmicGrowSpeed.class);
+        this.shape = (CirclesGrowShape) getShape();
+        this.speed = (BoundedLogarithmicGrowSpeed) getSpeed();
+    }
+
+
+    @Override
+    public double dist(Glyph a, Glyph b) {
+        return shape.dist(a, b);
+    }
+
+    @Override
+    public double dist(Rectangle2D rect, Glyph g) {
+        return shape.dist(rect, g);
+    }
+
+    @Override
+    public double intersectAt(Glyph a, Glyph b) {
+        if (a.hasSamePositionAs(b)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return speed.intersectAt(shape.dist(a, b), speed.weight(a),
+                speed.weight(b));
+    }
+
+    @Override
+    public double intersectAt(Rectangle2D r, Glyph glyph) {
+        return speed.intersectAt(shape.dist(r, glyph), speed.weight(glyph));
+    }
+
+    @Override
+    public double radius(Glyph g, double at) {
+        return speed.radius(g, at);
+    }
+
+    @Override
+    public double weight(Glyph glyph) {
+        return speed.weight(glyph);
+    }
+
+}
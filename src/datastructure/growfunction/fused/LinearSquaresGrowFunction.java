@@ -0,0 +1,68 @@
+package datastructure.growfunction.fused;
+
+import java.awt.geom.Rectangle2D;
+
+import datastructure.Glyph;
+import datastructure.growfunction.GrowFunction;
+import datastructure.growfunction.shape.SquaresGrowShape;
+import datastructure.growfunction.speed.LinearGrowSpeed;
+
+/**
+ * Grow function for squares that grow linearly in their weight.
+ *
+ * @see GrowFunction#create(Class, Class)
+ */
+public final class LinearSquaresGrowFunction extends GrowFunction {
+
+    /**
+     * Shape of glyphs that is implied by this grow function.
+     */
+    private final SquaresGrowShape shape;
+    /**
+     * Speed that is used by this grow function.
+     */
+    private final LinearGrowSpeed speed;
+
+
+    public LinearSquaresGrowFunction() {
+        super(SquaresGrowShape.class, LinearGrowSpeed.class);
+        this.shape = (SquaresGrowShape) getShape();
+        this.speed = (LinearGrowSpeed) getSpeed();
+    }
+
+
+    @Override
+    public double dist(Glyph a, Glyph b) {
+        return shape.dist(a, b);
+    }
+
+    @Override
+    public double dist(Rectangle2D rect, Glyph g) {
+        return shape.dist(rect, g);
+    }
+
+    @Override
+    public double intersectAt(Glyph a, Glyph b) {
+        if (a.hasSamePositionAs(b)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return speed.intersectAt(shape.dist(a, b), speed.weight(a),
+                speed.weight(b));
+    }
+
+    @Override
+    public double intersectAt(Rectangle2D r, Glyph glyph) {
+        return speed.intersectAt(shape.dist(r, glyph), speed.weight(glyph));
+    }
+
+    @Override
+    public double radius(Glyph g, double at) {
+        return speed.radius(g, at);
+    }
+
+    @Override
+    public double weight(Glyph glyph) {
+        return speed.weight(glyph);
+    }
+
+}
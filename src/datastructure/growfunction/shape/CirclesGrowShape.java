@@ -20,6 +20,16 @@ public class CirclesGrowShape extends GrowShapeBase {
                 gf.border(a, 0) - gf.border(b, 0);
     }
 
+    @Override
+    public void dist(double x, double y, double[] xs, double[] ys, int start,
+            int end, double[] out) {
+        for (int i = start; i < end; ++i) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            out[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
     @Override
     public double dist(Rectangle2D rect, Glyph g) {
         double d = Utils.euclidean(rect, g.getX(), g.getY());
@@ -24,6 +24,24 @@ public interface GrowShape {
      */
     public double dist(Glyph a, Glyph b);
 
+    /**
+     * Batched variant of {@link #dist(Glyph, Glyph)} for glyphs without
+     * borders. For every index {@code start <= i < end}, this stores the
+     * distance between point {@code (x, y)} and point {@code (xs[i], ys[i])}
+     * in {@code out[i]}. The result is exactly the same as calling
+     * {@link #dist(Glyph, Glyph)} with a glyph at {@code (x, y)} first.
+     *
+     * @param x X-coordinate of the first point.
+     * @param y Y-coordinate of the first point.
+     * @param xs X-coordinates of the other points.
+     * @param ys Y-coordinates of the other points.
+     * @param start First index to compute the distance for.
+     * @param end Index up to but excluding which distances are computed.
+     * @param out Array to store distances in.
+     */
+    public void dist(double x, double y, double[] xs, double[] ys, int start,
+            int end, double[] out);
+
     /**
      * Returns the minimum distance between a glyph and any point in the given
      * rectangle. This will in particular return {@link Double#NEGATIVE_INFINITY}
@@ -19,6 +19,14 @@ public class SquaresGrowShape extends GrowShapeBase {
                 gf.border(a, 0) - gf.border(b, 0);
     }
 
+    @Override
+    public void dist(double x, double y, double[] xs, double[] ys, int start,
+            int end, double[] out) {
+        for (int i = start; i < end; ++i) {
+            out[i] = Math.max(Math.abs(x - xs[i]), Math.abs(y - ys[i]));
+        }
+    }
+
     @Override
     public double dist(Rectangle2D rect, Glyph g) {
         double d = Utils.chebyshev(rect, g.getX(), g.getY());
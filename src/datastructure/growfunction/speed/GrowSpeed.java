@@ -35,6 +35,49 @@ public interface GrowSpeed {
      */
     public double intersectAt(Glyph a, Glyph b);
 
+    /**
+     * Returns at which zoom level two glyphs touch, given the distance between
+     * them and their {@link #weight(Glyph) weights}. This is what
+     * {@link #intersectAt(Glyph, Glyph)} computes for glyphs that do not share
+     * coordinates.
+     *
+     * @param d Distance between the glyphs, as determined by the shape.
+     * @param wa Weight of the first glyph.
+     * @param wb Weight of the second glyph.
+     */
+    public double intersectAt(double d, double wa, double wb);
+
+    /**
+     * Batched variant of {@link #intersectAt(Glyph, Glyph)}. Every other glyph
+     * is given by the coordinates of its center and the number of entities it
+     * represents, at the same index in {@code xs}, {@code ys} and {@code ns}.
+     * For every index {@code start <= i < end}, this stores the zoom level at
+     * which {@code from} and that glyph touch in {@code out[i]}.
+     *
+     * This may only be used when glyphs are not compressed and do not have
+     * borders, see {@link GrowFunction#canIntersectInBatch()}. In that case,
+     * the result is exactly the same as that of the unbatched variant.
+     *
+     * @param from Glyph to compute intersections with.
+     * @param xs X-coordinates of the centers of other glyphs.
+     * @param ys Y-coordinates of the centers of other glyphs.
+     * @param ns Number of entities represented by other glyphs.
+     * @param start First index to compute the intersection for.
+     * @param end Index up to but excluding which intersections are computed.
+     * @param out Array to store zoom levels in.
+     */
+    public void intersectAt(Glyph from, double[] xs, double[] ys, int[] ns,
+            int start, int end, double[] out);
+
+    /**
+     * Same as {@link #intersectAt(Glyph, double[], double[], int[], int, int,
+     * double[])}, for the first {@code len} glyphs.
+     */
+    public default void intersectAt(Glyph from, double[] xs, double[] ys,
+            int[] ns, int len, double[] out) {
+        intersectAt(from, xs, ys, ns, 0, len, out);
+    }
+
     /**
      * Returns at which zoom level a glyph touches a static rectangle. The
      * glyph is scaled using this {@link GrowFunction}.
@@ -48,6 +91,18 @@ public interface GrowSpeed {
      */
     public double intersectAt(Rectangle2D r, Glyph glyph);
 
+    /**
+     * Returns at which zoom level a glyph touches a static rectangle, given
+     * the distance between them and the {@link #weight(Glyph) weight} of the
+     * glyph. This is what {@link #intersectAt(Rectangle2D, Glyph)} computes.
+     *
+     * @param d Distance between rectangle and glyph, as determined by the
+     *            shape. This is {@link Double#NEGATIVE_INFINITY} when the glyph
+     *            is contained in the rectangle.
+     * @param w Weight of the glyph.
+     */
+    public double intersectAt(double d, double w);
+
     /**
      * Returns the radius of the given glyph at the given time stamp/zoom level.
      *
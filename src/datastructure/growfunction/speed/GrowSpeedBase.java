@@ -2,6 +2,7 @@ package datastructure.growfunction.speed;
 
 import datastructure.Glyph;
 import datastructure.growfunction.GrowFunction;
+import utils.Utils;
 
 /**
  * This class serves as a base for all classes implementing the {@link GrowSpeed}
@@ -33,4 +34,32 @@ public abstract class GrowSpeedBase implements GrowSpeed {
         return gf.thresholds.getN(glyph);
     }
 
+
+    /**
+     * Set {@code out[i]} to {@link Double#NEGATIVE_INFINITY} for all glyphs
+     * that share coordinates with the given point, as the unbatched variant of
+     * {@link #intersectAt(Glyph, Glyph)} does.
+     *
+     * @see #intersectAt(Glyph, double[], double[], int[], int, int, double[])
+     */
+    protected void markSamePosition(double x, double y, double[] xs,
+            double[] ys, int start, int end, double[] out) {
+        for (int i = start; i < end; ++i) {
+            if (Utils.Double.eq(x, xs[i]) && Utils.Double.eq(y, ys[i])) {
+                out[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+    }
+
+    /**
+     * Returns the weight of a glyph that represents the given number of
+     * entities and is not compressed.
+     *
+     * @param n Number of entities represented by the glyph.
+     * @see #weight(Glyph)
+     */
+    protected double weight(int n) {
+        return n;
+    }
+
 }
@@ -19,12 +19,34 @@ public class LevelGrowSpeed extends GrowSpeedBase {
         if (a.hasSamePositionAs(b)) {
             return Double.NEGATIVE_INFINITY;
         }
-        return gf.dist(a, b) / 2.0;
+        return intersectAt(gf.dist(a, b), 1, 1);
+    }
+
+    @Override
+    public double intersectAt(double d, double wa, double wb) {
+        return d / 2.0;
+    }
+
+    @Override
+    public void intersectAt(Glyph from, double[] xs, double[] ys, int[] ns,
+            int start, int end, double[] out) {
+        double x = from.getX();
+        double y = from.getY();
+        gf.getShape().dist(x, y, xs, ys, start, end, out);
+        for (int i = start; i < end; ++i) {
+            out[i] = intersectAt(out[i], 1, 1);
+        }
+        markSamePosition(x, y, xs, ys, start, end, out);
     }
 
     @Override
     public double intersectAt(Rectangle2D r, Glyph g) {
-        return gf.dist(r, g);
+        return intersectAt(gf.dist(r, g), 1);
+    }
+
+    @Override
+    public double intersectAt(double d, double w) {
+        return d;
     }
 
     @Override
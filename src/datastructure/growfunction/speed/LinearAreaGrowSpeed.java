@@ -19,4 +19,9 @@ public class LinearAreaGrowSpeed extends LinearGrowSpeed {
         return gf.thresholds.getCompression(glyph) * Math.sqrt(glyph.getN());
     }
 
+    @Override
+    protected double weight(int n) {
+        return Math.sqrt(n);
+    }
+
 }
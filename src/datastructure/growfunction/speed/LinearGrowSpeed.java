@@ -19,16 +19,38 @@ public class LinearGrowSpeed extends GrowSpeedBase {
         if (a.hasSamePositionAs(b)) {
             return Double.NEGATIVE_INFINITY;
         }
-        return gf.dist(a, b) / (weight(a) + weight(b));
+        return intersectAt(gf.dist(a, b), weight(a), weight(b));
+    }
+
+    @Override
+    public double intersectAt(double d, double wa, double wb) {
+        return d / (wa + wb);
+    }
+
+    @Override
+    public void intersectAt(Glyph from, double[] xs, double[] ys, int[] ns,
+            int start, int end, double[] out) {
+        double x = from.getX();
+        double y = from.getY();
+        double w = weight(from);
+        gf.getShape().dist(x, y, xs, ys, start, end, out);
+        for (int i = start; i < end; ++i) {
+            out[i] = intersectAt(out[i], w, weight(ns[i]));
+        }
+        markSamePosition(x, y, xs, ys, start, end, out);
     }
 
     @Override
     public double intersectAt(Rectangle2D r, Glyph g) {
-        double d = gf.dist(r, g);
+        return intersectAt(gf.dist(r, g), weight(g));
+    }
+
+    @Override
+    public double intersectAt(double d, double w) {
         if (Double.isInfinite(d)) {
             return d;
         }
-        return d / weight(g);
+        return d / w;
     }
 
     @Override
@@ -31,10 +31,11 @@ public class LogarithmicGrowSpeed extends GrowSpeedBase {
         if (gA.hasSamePositionAs(gB)) {
             return Double.NEGATIVE_INFINITY;
         }
-        double d = gf.dist(gA, gB);
-        double a = weight(gA);
-        double b = weight(gB);
+        return intersectAt(gf.dist(gA, gB), weight(gA), weight(gB));
+    }
 
+    @Override
+    public double intersectAt(double d, double a, double b) {
         // we want that `log(1 + t * w_a) + log(1 + t * w_b) = d / fA`, which
         // translates to the below equation according to WolframAlpha
         return (Math.sqrt(a * a + 4 * a * b *
@@ -42,16 +43,33 @@ public class LogarithmicGrowSpeed extends GrowSpeedBase {
                 2 * a * b + b * b) - a - b) / (2 * a * b);
     }
 
+    @Override
+    public void intersectAt(Glyph from, double[] xs, double[] ys, int[] ns,
+            int start, int end, double[] out) {
+        double x = from.getX();
+        double y = from.getY();
+        double a = weight(from);
+        gf.getShape().dist(x, y, xs, ys, start, end, out);
+        for (int i = start; i < end; ++i) {
+            out[i] = intersectAt(out[i], a, weight(ns[i]));
+        }
+        markSamePosition(x, y, xs, ys, start, end, out);
+    }
+
     @Override
     public double intersectAt(Rectangle2D r, Glyph g) {
-        double d = gf.dist(r, g);
+        return intersectAt(gf.dist(r, g), weight(g));
+    }
+
+    @Override
+    public double intersectAt(double d, double w) {
         if (Double.isInfinite(d)) {
             return d;
         }
 
         // we want that `log(1 + t * w) = d / fA`, which translates to
         // `t = (base^(d / fA) - 1) / w`, which is used below
-        return (Math.pow(LOG_BASE, d / fA) - 1) / weight(g);
+        return (Math.pow(LOG_BASE, d / fA) - 1) / w;
     }
 
     @Override
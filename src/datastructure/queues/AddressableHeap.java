@@ -0,0 +1,266 @@
+package datastructure.queues;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Indexed d-ary min-heap. Every element that is added gets a handle, which
+ * remains valid until that element leaves the heap. Using that handle, an
+ * element can be removed or replaced in O(log n) time.
+ *
+ * Elements are ordered by their natural ordering. Just like in a
+ * {@link java.util.PriorityQueue}, ties are broken arbitrarily.
+ *
+ * @param <T> Type of elements in the heap.
+ */
+public class AddressableHeap<T extends Comparable<? super T>> {
+
+    /**
+     * Default number of children per node.
+     */
+    public static final int DEFAULT_ARITY = 4;
+
+
+    /**
+     * Number of children per node.
+     */
+    private final int arity;
+    /**
+     * Elements in the heap, indexed by handle.
+     */
+    private Object[] elements;
+    /**
+     * Handles that can be reused, as a stack.
+     */
+    private int[] free;
+    /**
+     * Handles of elements, in heap order.
+     */
+    private int[] heap;
+    /**
+     * Number of handles that have ever been handed out.
+     */
+    private int numHandles;
+    /**
+     * Number of handles on the {@link #free} stack.
+     */
+    private int numFree;
+    /**
+     * Position in {@link #heap} of every handle, or -1 for unused handles.
+     */
+    private int[] position;
+    /**
+     * Number of elements in the heap.
+     */
+    private int size;
+
+
+    /**
+     * Construct an empty heap with {@link #DEFAULT_ARITY default arity}.
+     *
+     * @param capacity Initial capacity of the heap.
+     */
+    public AddressableHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Construct an empty heap.
+     *
+     * @param capacity Initial capacity of the heap.
+     * @param arity Number of children per node, at least 2.
+     */
+    public AddressableHeap(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("arity must be at least 2");
+        }
+        capacity = Math.max(capacity, 1);
+        this.arity = arity;
+        this.elements = new Object[capacity];
+        this.free = new int[capacity];
+        this.heap = new int[capacity];
+        this.numHandles = 0;
+        this.numFree = 0;
+        this.position = new int[capacity];
+        this.size = 0;
+    }
+
+
+    /**
+     * Add an element to the heap.
+     *
+     * @param element Element to add.
+     * @return Handle of the element in the heap.
+     */
+    public int add(T element) {
+        if (size == heap.length) {
+            grow();
+        }
+        int h = (numFree > 0 ? free[--numFree] : numHandles++);
+        elements[h] = element;
+        siftUp(size++, h);
+        return h;
+    }
+
+    /**
+     * Remove all elements from the heap. All handles become invalid.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, numHandles, null);
+        numHandles = 0;
+        numFree = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns whether the given handle refers to an element in the heap.
+     */
+    public boolean contains(int handle) {
+        return (handle >= 0 && handle < numHandles && position[handle] >= 0);
+    }
+
+    /**
+     * Perform the given action for every element in the heap, in heap order.
+     * The heap must not be changed by the action.
+     */
+    public void forEach(Consumer<? super T> action) {
+        for (int k = 0; k < size; ++k) {
+            action.accept(get(heap[k]));
+        }
+    }
+
+    /**
+     * Returns the element with the given handle.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        return (T) elements[handle];
+    }
+
+    /**
+     * Returns whether the heap has no elements.
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Returns the smallest element, or {@code null} if the heap is empty.
+     */
+    public T peek() {
+        return (size == 0 ? null : get(heap[0]));
+    }
+
+    /**
+     * Removes and returns the smallest element, or returns {@code null} if the
+     * heap is empty.
+     */
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T element = get(heap[0]);
+        remove(heap[0]);
+        return element;
+    }
+
+    /**
+     * Remove the element with the given handle from the heap. Does nothing
+     * when the handle does not {@link #contains(int) refer} to an element in
+     * the heap, for example because that element was removed already.
+     *
+     * @param handle Handle of the element to remove.
+     */
+    public void remove(int handle) {
+        if (!contains(handle)) {
+            return;
+        }
+        int k = position[handle];
+        elements[handle] = null;
+        position[handle] = -1;
+        free[numFree++] = handle;
+        int last = heap[--size];
+        if (k < size) {
+            siftDown(k, last);
+            if (heap[k] == last) {
+                siftUp(k, last);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of elements in the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replace the element with the given handle by another element, which may
+     * be smaller or larger than the element it replaces.
+     *
+     * @param handle Handle of the element to replace.
+     * @param element New element.
+     */
+    public void update(int handle, T element) {
+        elements[handle] = element;
+        int k = position[handle];
+        siftUp(k, handle);
+        if (heap[k] == handle) {
+            siftDown(k, handle);
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private int compare(int handleA, int handleB) {
+        return ((T) elements[handleA]).compareTo((T) elements[handleB]);
+    }
+
+    private void grow() {
+        int capacity = heap.length + (heap.length >> 1) + 1;
+        elements = Arrays.copyOf(elements, capacity);
+        free = Arrays.copyOf(free, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+        position = Arrays.copyOf(position, capacity);
+    }
+
+    private void place(int k, int handle) {
+        heap[k] = handle;
+        position[handle] = k;
+    }
+
+    private void siftDown(int k, int handle) {
+        while (true) {
+            int child = k * arity + 1;
+            if (child >= size) {
+                break;
+            }
+            int end = Math.min(child + arity, size);
+            for (int c = child + 1; c < end; ++c) {
+                if (compare(heap[c], heap[child]) < 0) {
+                    child = c;
+                }
+            }
+            if (compare(handle, heap[child]) <= 0) {
+                break;
+            }
+            place(k, heap[child]);
+            k = child;
+        }
+        place(k, handle);
+    }
+
+    private void siftUp(int k, int handle) {
+        while (k > 0) {
+            int parent = (k - 1) / arity;
+            if (compare(handle, heap[parent]) >= 0) {
+                break;
+            }
+            place(k, heap[parent]);
+            k = parent;
+        }
+        place(k, handle);
+    }
+
+}
@@ -22,7 +22,14 @@ public enum BucketingStrategy {
      * example, setting the threshold to {@code 2} will create a queue for all
      * events happening in {@code [0, 2)}, one for {@code [2, 4)}, et cetera.
      */
-    ON_TIMESTAMP("BUCKETING ON TIMESTAMP", 1e-6, 1.2, 3e-5);
+    ON_TIMESTAMP("BUCKETING ON TIMESTAMP", 1e-6, 1.2, 3e-5),
+    /**
+     * Using this strategy means that a {@link LadderQueue} is used instead of
+     * a {@link MultiQueue}. Its buckets have widths that adapt to the events
+     * in the queue. The {@link #getThreshold() threshold} is the number of
+     * events that can be moved into the sorted bottom of the ladder at once.
+     */
+    LADDER("LADDER QUEUE", 50);
 
 
     private Number growing;
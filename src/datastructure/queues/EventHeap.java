@@ -0,0 +1,547 @@
+package datastructure.queues;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import datastructure.Glyph;
+import datastructure.QuadTree;
+import datastructure.events.Event;
+import datastructure.events.Event.Type;
+import datastructure.events.GlyphMerge;
+import datastructure.events.OutOfCell;
+import datastructure.events.OutOfCell.Side;
+import utils.Constants.B;
+import utils.Constants.D;
+import utils.Utils.Stats;
+import utils.Utils.Timers;
+
+/**
+ * Binary heap of {@link Event events} that does not hold on to event objects.
+ *
+ * The timestamps of events are kept in a {@code double[]} in heap order, next
+ * to an {@code int} handle per entry. That handle points into a store of
+ * parallel arrays, which holds the type, glyphs, cell and side of each event.
+ * An {@link Event} object is only constructed again when it becomes the head
+ * of the heap. This means that events inserted into this queue can be garbage
+ * collected right away, instead of living in the queue for a long time.
+ *
+ * Events are ordered as per {@link Event#compareTo(Event)}. Events that compare
+ * equal are returned in no particular order. That order matches the one of a
+ * {@link java.util.PriorityQueue} only as long as events are added one at a
+ * time; bulk {@link #addAll(Collection) insertions} and compactions rebuild
+ * the heap, which may reorder such events. Only {@link GlyphMerge} and
+ * {@link OutOfCell} events can be stored.
+ *
+ * Just like {@link MultiQueue}, this queue keeps track of the number of
+ * insertions and deletions into/from it. Bucketing is not supported.
+ *
+ * Events that involve a glyph that {@link Glyph#hasPerished() perished} are
+ * stale: they will be discarded when they reach the head of the queue. This
+ * queue looks for stale events in the background, a few entries per operation.
+ * When more than {@link D#QUEUE_STALE_FRACTION} of all entries is known to be
+ * stale, all stale entries are removed and the heap is rebuilt in linear time.
+ * Such a compaction counts the removed entries as discarded.
+ */
+public class EventHeap extends AbstractQueue<Event> implements EventQueue {
+
+    private static final int INSERTION = 0;
+    private static final int DELETION = 1;
+    private static final int DISCARD = 2;
+
+    /**
+     * Compaction is not considered for queues with fewer elements than this.
+     */
+    private static final int MIN_COMPACTION_SIZE = 1024;
+    /**
+     * Number of entries that are checked for staleness per operation.
+     */
+    private static final int SWEEP_STEP = 2;
+
+    private static final Side[] SIDES = Side.values();
+    private static final Type[] TYPES = Type.values();
+
+
+    /**
+     * Number of compactions that happened so far.
+     */
+    private int compactions;
+    /**
+     * Counts in the order insertions, deletions, discards.
+     */
+    private int[] counts;
+    /**
+     * Head of the queue as an {@link Event} object, or {@code null} when that
+     * object has not been constructed (yet).
+     */
+    private Event head;
+    /**
+     * Largest number of events in the heap so far.
+     */
+    private int peakSize;
+    /**
+     * Number of events in the heap.
+     */
+    private int size;
+    /**
+     * Fraction of entries that needs to be stale to trigger a compaction.
+     */
+    private double staleFraction;
+    /**
+     * Number of entries that are known to be stale.
+     */
+    private int staleCount;
+    /**
+     * Next handle to check for staleness.
+     */
+    private int sweep;
+
+    /**
+     * Timestamps of events, in heap order.
+     */
+    private double[] keys;
+    /**
+     * Handles of events, in heap order. A handle is an index into the arrays
+     * of the event store.
+     */
+    private int[] handles;
+
+    /**
+     * Store: ordinal of the {@link Type} of events.
+     */
+    private byte[] types;
+    /**
+     * Store: first glyph of events.
+     */
+    private Glyph[] glyphsA;
+    /**
+     * Store: second glyph of events, {@code null} for out of cell events.
+     */
+    private Glyph[] glyphsB;
+    /**
+     * Store: cell of out of cell events, {@code null} for merge events.
+     */
+    private QuadTree[] cells;
+    /**
+     * Store: ordinal of the {@link Side} of out of cell events.
+     */
+    private byte[] sides;
+    /**
+     * Store: whether events are known to be stale.
+     */
+    private boolean[] stale;
+    /**
+     * Number of handles that have ever been handed out.
+     */
+    private int numHandles;
+    /**
+     * Handles that can be reused, as a stack.
+     */
+    private int[] free;
+    /**
+     * Number of handles on the {@link #free} stack.
+     */
+    private int numFree;
+
+
+    /**
+     * Construct an empty {@link EventHeap}.
+     *
+     * @param capacity Initial capacity of the queue.
+     */
+    public EventHeap(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.compactions = 0;
+        this.counts = new int[3];
+        this.head = null;
+        this.peakSize = 0;
+        this.size = 0;
+        this.staleFraction = D.QUEUE_STALE_FRACTION.get();
+        this.staleCount = 0;
+        this.sweep = 0;
+        this.keys = new double[capacity];
+        this.handles = new int[capacity];
+        this.types = new byte[capacity];
+        this.glyphsA = new Glyph[capacity];
+        this.glyphsB = new Glyph[capacity];
+        this.cells = new QuadTree[capacity];
+        this.sides = new byte[capacity];
+        this.stale = new boolean[capacity];
+        this.numHandles = 0;
+        this.free = new int[capacity];
+        this.numFree = 0;
+    }
+
+
+    /**
+     * Add all given events to the heap. When more events are added than the
+     * heap holds already, they are appended and the heap is rebuilt once,
+     * rather than inserting them one by one.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Event> c) {
+        if (c == this) {
+            throw new IllegalArgumentException("cannot add a queue to itself");
+        }
+        if (c.size() <= size) {
+            return super.addAll(c);
+        }
+        Timers.start("queue operations");
+        while (size + c.size() > keys.length) {
+            grow();
+        }
+        for (Event e : c) {
+            keys[size] = e.getAt();
+            handles[size] = store(e);
+            size++;
+        }
+        heapify();
+        counts[INSERTION] += c.size();
+        peakSize = Math.max(peakSize, size);
+        Timers.stop("queue operations");
+        for (Event e : c) {
+            Stats.record(e.getType().toString(), 1);
+        }
+        return !c.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(glyphsA, 0, numHandles, null);
+        Arrays.fill(glyphsB, 0, numHandles, null);
+        Arrays.fill(cells, 0, numHandles, null);
+        Arrays.fill(stale, 0, numHandles, false);
+        head = null;
+        size = 0;
+        staleCount = 0;
+        sweep = 0;
+        numHandles = 0;
+        numFree = 0;
+    }
+
+    @Override
+    public void discard() {
+        counts[DISCARD]++;
+        poll(" discarded");
+    }
+
+    @Override
+    public int getCompactions() {
+        return compactions;
+    }
+
+    @Override
+    public int getDeletions() {
+        return counts[DELETION];
+    }
+
+    @Override
+    public int getDiscarded() {
+        return counts[DISCARD];
+    }
+
+    @Override
+    public int getInsertions() {
+        return counts[INSERTION];
+    }
+
+    @Override
+    public int getNumQueues() {
+        return 1;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    @Override
+    public Iterator<Event> iterator() {
+        return new Iterator<Event>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return (i < size);
+            }
+
+            @Override
+            public Event next() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (i == 0 && head != null) {
+                    i++;
+                    return head;
+                }
+                return createEvent(i++);
+            }
+        };
+    }
+
+    @Override
+    public boolean offer(Event e) {
+        counts[INSERTION]++;
+        Timers.start("queue operations");
+        if (size == keys.length) {
+            grow();
+        }
+        int h = store(e);
+        int k = siftUp(size, e.getAt(), h);
+        size++;
+        peakSize = Math.max(peakSize, size);
+        if (k == 0) {
+            head = e;
+        }
+        sweep();
+        Timers.stop("queue operations");
+        Stats.record(e.getType().toString(), 1);
+        return true;
+    }
+
+    @Override
+    public Event peek() {
+        if (size == 0) {
+            return null;
+        }
+        if (head == null) {
+            head = createEvent(0);
+        }
+        return head;
+    }
+
+    @Override
+    public Event poll() {
+        counts[DELETION]++;
+        return poll(" handled");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns whether the event at heap index {@code i} should be ordered
+     * before the event at heap index {@code j}. This mimics the result of
+     * {@code event_i.compareTo(event_j) < 0}.
+     */
+    private boolean before(int i, int j) {
+        return before(keys[i], handles[i], keys[j], handles[j]);
+    }
+
+    private boolean before(double keyA, int handleA, double keyB, int handleB) {
+        if (keyA < keyB) {
+            return true;
+        }
+        if (keyA > keyB) {
+            return false;
+        }
+        return (TYPES[types[handleA]].getPriority() <
+                TYPES[types[handleB]].getPriority());
+    }
+
+    /**
+     * Remove all stale entries and restore the heap property afterwards.
+     */
+    private void compact() {
+        int[] removed = new int[TYPES.length];
+        int kept = 0;
+        for (int i = 0; i < size; ++i) {
+            int h = handles[i];
+            if (isStale(h)) {
+                removed[types[h]]++;
+                if (cells[h] != null && B.QUADTREE_NODE_POOLING.get()) {
+                    cells[h].unpin();
+                }
+                release(h);
+            } else {
+                keys[kept] = keys[i];
+                handles[kept] = h;
+                kept++;
+            }
+        }
+        counts[DISCARD] += size - kept;
+        for (Type type : TYPES) {
+            Stats.record(type.toString() + " discarded", removed[type.ordinal()]);
+        }
+        size = kept;
+        staleCount = 0;
+        heapify();
+        compactions++;
+    }
+
+    /**
+     * Construct an {@link Event} object for the event at the given heap index.
+     */
+    private Event createEvent(int index) {
+        int h = handles[index];
+        if (TYPES[types[h]] == Type.MERGE) {
+            return new GlyphMerge(glyphsA[h], glyphsB[h], keys[index]);
+        }
+        return new OutOfCell(glyphsA[h], cells[h], SIDES[sides[h]],
+                keys[index]);
+    }
+
+    /**
+     * Increase the capacity of both heap and event store.
+     */
+    private void grow() {
+        int capacity = keys.length + (keys.length >> 1) + 1;
+        keys = Arrays.copyOf(keys, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        types = Arrays.copyOf(types, capacity);
+        glyphsA = Arrays.copyOf(glyphsA, capacity);
+        glyphsB = Arrays.copyOf(glyphsB, capacity);
+        cells = Arrays.copyOf(cells, capacity);
+        sides = Arrays.copyOf(sides, capacity);
+        stale = Arrays.copyOf(stale, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+
+    /**
+     * Restore the heap property for all entries, in linear time.
+     */
+    private void heapify() {
+        for (int i = (size >>> 1) - 1; i >= 0; --i) {
+            siftDown(i, keys[i], handles[i]);
+        }
+        head = null;
+    }
+
+    /**
+     * Returns whether the event with the given handle involves a glyph that
+     * has perished, meaning that it will be discarded eventually.
+     */
+    private boolean isStale(int h) {
+        return (glyphsA[h].hasPerished() ||
+                (glyphsB[h] != null && glyphsB[h].hasPerished()));
+    }
+
+    private Event poll(String type) {
+        if (size == 0) {
+            return null;
+        }
+        Timers.start("queue operations");
+        Event e = peek();
+        release(handles[0]);
+        size--;
+        if (size > 0) {
+            siftDown(0, keys[size], handles[size]);
+        }
+        head = null;
+        sweep();
+        Timers.stop("queue operations");
+        Stats.record("queue size", size());
+        Stats.record(e.getType().toString() + type, 1);
+        return e;
+    }
+
+    /**
+     * Make the given handle available for reuse.
+     */
+    private void release(int h) {
+        if (stale[h]) {
+            stale[h] = false;
+            staleCount--;
+        }
+        glyphsA[h] = null;
+        glyphsB[h] = null;
+        cells[h] = null;
+        free[numFree++] = h;
+    }
+
+    /**
+     * Place the given entry at heap index {@code k} or lower, restoring the
+     * heap property.
+     */
+    private void siftDown(int k, double key, int h) {
+        int half = size >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int right = child + 1;
+            if (right < size && before(right, child)) {
+                child = right;
+            }
+            if (!before(keys[child], handles[child], key, h)) {
+                break;
+            }
+            keys[k] = keys[child];
+            handles[k] = handles[child];
+            k = child;
+        }
+        keys[k] = key;
+        handles[k] = h;
+    }
+
+    /**
+     * Place the given entry at heap index {@code k} or higher, restoring the
+     * heap property.
+     *
+     * @return The heap index at which the entry ends up.
+     */
+    private int siftUp(int k, double key, int h) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!before(key, h, keys[parent], handles[parent])) {
+                break;
+            }
+            keys[k] = keys[parent];
+            handles[k] = handles[parent];
+            k = parent;
+        }
+        keys[k] = key;
+        handles[k] = h;
+        return k;
+    }
+
+    /**
+     * Check the next few entries in the event store for staleness, and compact
+     * the heap when enough stale entries have been found.
+     */
+    private void sweep() {
+        if (staleFraction <= 0) {
+            return;
+        }
+        for (int i = 0; i < SWEEP_STEP && numHandles > 0; ++i) {
+            if (sweep >= numHandles) {
+                sweep = 0;
+            }
+            int h = sweep++;
+            if (glyphsA[h] != null && !stale[h] && isStale(h)) {
+                stale[h] = true;
+                staleCount++;
+            }
+        }
+        if (size >= MIN_COMPACTION_SIZE && staleCount > staleFraction * size) {
+            compact();
+        }
+    }
+
+    /**
+     * Copy the given event into the event store.
+     *
+     * @return Handle of the event in the store.
+     */
+    private int store(Event e) {
+        int h = (numFree > 0 ? free[--numFree] : numHandles++);
+        Glyph[] glyphs = e.getGlyphs();
+        types[h] = (byte) e.getType().ordinal();
+        glyphsA[h] = glyphs[0];
+        switch (e.getType()) {
+        case MERGE:
+            glyphsB[h] = glyphs[1];
+            break;
+        case OUT_OF_CELL:
+            OutOfCell o = (OutOfCell) e;
+            cells[h] = o.getCell();
+            sides[h] = (byte) o.getSide().ordinal();
+            break;
+        }
+        return h;
+    }
+
+}
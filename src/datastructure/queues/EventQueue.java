@@ -0,0 +1,55 @@
+package datastructure.queues;
+
+import java.util.Queue;
+
+import datastructure.events.Event;
+
+/**
+ * {@link Queue} of {@link Event events} that keeps track of the number of
+ * insertions and deletions into/from it. Can be asked for these stats too.
+ *
+ * Implementations order events as {@link Event#compareTo(Event)} does.
+ *
+ * @see MultiQueue
+ * @see EventHeap
+ */
+public interface EventQueue extends Queue<Event> {
+
+    /**
+     * Remove the head of the queue, counting it as discarded instead of as a
+     * deletion. This is meant for events that turn out to be stale.
+     */
+    public void discard();
+
+    /**
+     * Returns the number of times that stale events were removed from this
+     * queue in bulk.
+     */
+    public int getCompactions();
+
+    /**
+     * Returns the number of deletions from this queue.
+     */
+    public int getDeletions();
+
+    /**
+     * Returns the number of elements that was discarded.
+     */
+    public int getDiscarded();
+
+    /**
+     * Returns the number of elements that was added.
+     */
+    public int getInsertions();
+
+    /**
+     * Returns the number of queues that events are stored in internally.
+     */
+    public int getNumQueues();
+
+    /**
+     * Returns the largest number of events that was in this queue at once.
+     */
+    public int getPeakSize();
+
+}
@@ -0,0 +1,390 @@
+package datastructure.queues;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import datastructure.events.Event;
+import utils.Utils.Stats;
+import utils.Utils.Timers;
+
+/**
+ * Ladder queue of {@link Event events}, as described by Tang, Goh and Thng in
+ * <i>Ladder Queue: An O(1) Priority Queue Structure for Large-Scale Discrete
+ * Event Simulation</i> (2005).
+ *
+ * Events are stored in three tiers. New events that lie in the far future are
+ * appended to an unsorted <i>top</i> list. Events in the near future are kept
+ * in the buckets of a number of <i>rungs</i>, where every rung divides a single
+ * bucket of the rung above it into smaller buckets. The width of buckets is
+ * derived from the number of events that have to be spread over them, so that
+ * it adapts to the distribution of event times. Finally, the events that will
+ * happen first are kept sorted in a small <i>bottom</i> queue, which is filled
+ * one bucket at a time. This gives amortized constant time insertion and
+ * extraction for event times that move forward, as they do in the clusterer.
+ *
+ * Events that are inserted with a timestamp before the current bucket are
+ * simply put in the bottom queue, so correctness does not depend on event
+ * times being monotone.
+ *
+ * Just like {@link MultiQueue}, this queue keeps track of the number of
+ * insertions and deletions into/from it.
+ *
+ * @see BucketingStrategy#LADDER
+ */
+public class LadderQueue extends AbstractQueue<Event> implements EventQueue {
+
+    private static final int INSERTION = 0;
+    private static final int DELETION = 1;
+    private static final int DISCARD = 2;
+
+    /**
+     * Maximum number of rungs that is created.
+     */
+    private static final int MAX_RUNGS = 8;
+
+
+    /**
+     * Sorted queue with the events that will happen first.
+     */
+    private PriorityQueue<Event> bottom;
+    /**
+     * Maximum number of events that can be moved into the bottom queue at
+     * once. Buckets with more events are split into a new rung instead.
+     */
+    private int bottomThreshold;
+    /**
+     * Counts in the order insertions, deletions, discards.
+     */
+    private int[] counts;
+    /**
+     * Number of rungs currently in use.
+     */
+    private int numRungs;
+    /**
+     * Largest number of events in the queue so far.
+     */
+    private int peakSize;
+    /**
+     * Rungs of the ladder, the first rung has the widest buckets.
+     */
+    private Rung[] rungs;
+    /**
+     * Number of events in the queue.
+     */
+    private int size;
+    /**
+     * Unsorted list of events in the far future.
+     */
+    private List<Event> top;
+    /**
+     * Largest timestamp of events in {@link #top}.
+     */
+    private double topMax;
+    /**
+     * Smallest timestamp of events in {@link #top}.
+     */
+    private double topMin;
+    /**
+     * Events with a timestamp after this one are added to {@link #top}.
+     */
+    private double topStart;
+
+
+    /**
+     * Construct an empty {@link LadderQueue}.
+     *
+     * @param strategy Strategy that holds the threshold for the number of
+     *            events that are moved into the bottom queue at once.
+     * @param capacity Initial capacity of the queue.
+     */
+    public LadderQueue(BucketingStrategy strategy, int capacity) {
+        if (strategy.getThreshold() == null) {
+            throw new RuntimeException(strategy + " strategy needs to have a "
+                    + "threshold set");
+        }
+        this.bottomThreshold = Math.max(strategy.getThresholdI(), 1);
+        this.bottom = new PriorityQueue<>(2 * bottomThreshold);
+        this.counts = new int[3];
+        this.numRungs = 0;
+        this.peakSize = 0;
+        this.rungs = new Rung[MAX_RUNGS];
+        this.size = 0;
+        this.top = new ArrayList<>(Math.max(capacity, 1));
+        this.topStart = Double.NEGATIVE_INFINITY;
+        resetTop();
+    }
+
+
+    @Override
+    public void clear() {
+        bottom.clear();
+        numRungs = 0;
+        size = 0;
+        top.clear();
+        topStart = Double.NEGATIVE_INFINITY;
+        resetTop();
+    }
+
+    @Override
+    public void discard() {
+        counts[DISCARD]++;
+        poll(" discarded");
+    }
+
+    @Override
+    public int getCompactions() {
+        return 0;
+    }
+
+    @Override
+    public int getDeletions() {
+        return counts[DELETION];
+    }
+
+    @Override
+    public int getDiscarded() {
+        return counts[DISCARD];
+    }
+
+    @Override
+    public int getInsertions() {
+        return counts[INSERTION];
+    }
+
+    @Override
+    public int getNumQueues() {
+        return numRungs + 2;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    @Override
+    public Iterator<Event> iterator() {
+        List<Event> all = new ArrayList<>(size);
+        all.addAll(bottom);
+        for (int r = 0; r < numRungs; ++r) {
+            Rung rung = rungs[r];
+            for (int b = rung.current; b < rung.buckets.length; ++b) {
+                if (rung.buckets[b] != null) {
+                    all.addAll(rung.buckets[b]);
+                }
+            }
+        }
+        all.addAll(top);
+        return all.iterator();
+    }
+
+    @Override
+    public boolean offer(Event e) {
+        counts[INSERTION]++;
+        Timers.start("queue operations");
+        insert(e);
+        size++;
+        peakSize = Math.max(peakSize, size);
+        Timers.stop("queue operations");
+        Stats.record(e.getType().toString(), 1);
+        return true;
+    }
+
+    @Override
+    public Event peek() {
+        if (size == 0) {
+            return null;
+        }
+        if (bottom.isEmpty()) {
+            fillBottom();
+        }
+        return bottom.peek();
+    }
+
+    @Override
+    public Event poll() {
+        counts[DELETION]++;
+        return poll(" handled");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Move the first non-empty bucket of the ladder into the bottom queue,
+     * splitting buckets into new rungs as needed. When the ladder is empty, it
+     * is first rebuilt from the events in {@link #top}.
+     */
+    private void fillBottom() {
+        while (bottom.isEmpty()) {
+            if (numRungs == 0) {
+                if (!transferTop()) {
+                    return;
+                }
+                continue;
+            }
+            Rung rung = rungs[numRungs - 1];
+            List<Event> bucket = rung.nextBucket();
+            if (bucket == null) {
+                // rung is exhausted, continue with the rung above it
+                rungs[--numRungs] = null;
+                continue;
+            }
+            double bucketStart = rung.bucketStart(rung.current);
+            rung.current++;
+            if (bucket.size() > bottomThreshold && numRungs < MAX_RUNGS &&
+                    rung.width / bucket.size() > 0) {
+                Rung child = new Rung(bucketStart, rung.width / bucket.size(),
+                        bucket.size());
+                for (Event e : bucket) {
+                    child.add(e);
+                }
+                rungs[numRungs++] = child;
+                Stats.count("ladder queue rung spawned");
+            } else {
+                bottom.addAll(bucket);
+            }
+        }
+    }
+
+    /**
+     * Add the given event to the tier it belongs in.
+     */
+    private void insert(Event e) {
+        double at = e.getAt();
+        // events at exactly `topStart` may already be in the first rung, and
+        // have to end up in the same bucket to be ordered correctly
+        if (at > topStart) {
+            top.add(e);
+            topMin = Math.min(topMin, at);
+            topMax = Math.max(topMax, at);
+            return;
+        }
+        for (int r = 0; r < numRungs; ++r) {
+            if (at >= rungs[r].bucketStart(rungs[r].current)) {
+                rungs[r].add(e);
+                return;
+            }
+        }
+        bottom.add(e);
+    }
+
+    private Event poll(String type) {
+        if (size == 0) {
+            return null;
+        }
+        Timers.start("queue operations");
+        Event e = peek();
+        bottom.poll();
+        size--;
+        Timers.stop("queue operations");
+        Stats.record("queue size", size());
+        Stats.record(e.getType().toString() + type, 1);
+        return e;
+    }
+
+    private void resetTop() {
+        this.topMax = Double.NEGATIVE_INFINITY;
+        this.topMin = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Create the first rung from all events in {@link #top}.
+     *
+     * @return Whether there were any events to transfer.
+     */
+    private boolean transferTop() {
+        if (top.isEmpty()) {
+            return false;
+        }
+        double width = (topMax - topMin) / top.size();
+        if (width > 0 && !Double.isInfinite(width) && !Double.isNaN(width)) {
+            Rung rung = new Rung(topMin, width, top.size() + 1);
+            for (Event e : top) {
+                rung.add(e);
+            }
+            rungs[numRungs++] = rung;
+            topStart = topMax;
+        } else {
+            // all events at the same time, or infinite timestamps involved
+            bottom.addAll(top);
+            topStart = Math.max(topStart, topMax);
+        }
+        top.clear();
+        resetTop();
+        return true;
+    }
+
+
+    /**
+     * A single rung of the ladder: a range of buckets of equal width.
+     */
+    private static class Rung {
+
+        /**
+         * Buckets of this rung. Buckets are only created when needed.
+         */
+        private final List<Event>[] buckets;
+        /**
+         * Index of the first bucket that has not been moved down yet.
+         */
+        private int current;
+        /**
+         * Timestamp at which the first bucket starts.
+         */
+        private final double start;
+        /**
+         * Width of every bucket.
+         */
+        private final double width;
+
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Rung(double start, double width, int numBuckets) {
+            this.buckets = new List[numBuckets];
+            this.current = 0;
+            this.start = start;
+            this.width = width;
+        }
+
+
+        private void add(Event e) {
+            int b = (int) ((e.getAt() - start) / width);
+            // guard against rounding errors at the edges of the rung
+            b = Math.min(Math.max(b, current), buckets.length - 1);
+            if (buckets[b] == null) {
+                buckets[b] = new ArrayList<>();
+            }
+            buckets[b].add(e);
+        }
+
+        private double bucketStart(int b) {
+            return start + b * width;
+        }
+
+        /**
+         * Advance to the first non-empty bucket and return it, or return
+         * {@code null} when all buckets are empty. The bucket is removed from
+         * this rung, but {@link #current} still points at it.
+         */
+        private List<Event> nextBucket() {
+            while (current < buckets.length) {
+                List<Event> bucket = buckets[current];
+                if (bucket != null && !bucket.isEmpty()) {
+                    buckets[current] = null;
+                    return bucket;
+                }
+                buckets[current] = null;
+                current++;
+            }
+            return null;
+        }
+
+    }
+
+}
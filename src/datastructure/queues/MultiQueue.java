@@ -15,7 +15,7 @@ import utils.Utils.Timers;
  *
  * @see BucketingStrategy
  */
-public class MultiQueue extends PriorityQueue<Event> {
+public class MultiQueue extends PriorityQueue<Event> implements EventQueue {
 
     private static final int INSERTION = 0;
     private static final int DELETION = 1;
@@ -34,6 +34,11 @@ public class MultiQueue extends PriorityQueue<Event> {
      * Initial capacity of the queue.
      */
     private int initialCapacity;
+    /**
+     * Largest number of elements in all queues together. Only kept up to date
+     * in the root queue.
+     */
+    private int peakSize;
     /**
      * Pointer to next queue, when split.
      */
@@ -75,6 +80,10 @@ public class MultiQueue extends PriorityQueue<Event> {
 
     private MultiQueue(BucketingStrategy splitAt, MultiQueue previous, int capacity) {
         super(capacity);
+        if (splitAt == BucketingStrategy.LADDER) {
+            throw new IllegalArgumentException(splitAt + " strategy is "
+                    + "implemented by LadderQueue");
+        }
         if (splitAt != BucketingStrategy.NO_BUCKETING &&
                 splitAt.getThreshold() == null) {
             throw new RuntimeException(splitAt + " strategy needs to have a "
@@ -85,6 +94,7 @@ public class MultiQueue extends PriorityQueue<Event> {
         this.id = (previous == null ? 0 : previous.id + 1);
         this.initialCapacity = capacity;
         this.next = null;
+        this.peakSize = 0;
         this.rangeStart = Double.NaN;
         this.rangeEnd = Double.NaN;
         this.root = (previous == null ? this : previous.root);
@@ -92,27 +102,27 @@ public class MultiQueue extends PriorityQueue<Event> {
     }
 
 
-    /**
-     * Returns the number of deletions from this queue.
-     */
+    @Override
+    public int getCompactions() {
+        return 0;
+    }
+
+    @Override
     public int getDeletions() {
         return getCount(DELETION);
     }
 
-    /**
-     * Returns the number of elements that was discarded.
-     */
+    @Override
     public int getDiscarded() {
         return getCount(DISCARD);
     }
 
-    /**
-     * Returns the number of elements that was added.
-     */
+    @Override
     public int getInsertions() {
         return getCount(INSERTION);
     }
 
+    @Override
     public int getNumQueues() {
         MultiQueue q = this;
         while (q.next != null) {
@@ -121,12 +131,18 @@ public class MultiQueue extends PriorityQueue<Event> {
         return q.id + 1;
     }
 
+    @Override
+    public int getPeakSize() {
+        return root.peakSize;
+    }
+
 
     @Override
     public boolean add(Event e) {
         count(INSERTION);
         if (this == root) {
             Timers.start("queue operations");
+            peakSize = Math.max(peakSize, size() + 1);
         }
         // need to split?
         switch (splitAt) {
@@ -153,6 +169,7 @@ public class MultiQueue extends PriorityQueue<Event> {
         return t;
     }
 
+    @Override
     public void discard() {
         count(DISCARD);
         poll(" discarded");
@@ -38,6 +38,8 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import algorithm.clustering.Clusterer;
+import algorithm.clustering.KineticClusterer;
+import algorithm.clustering.PartitionedClusterer;
 import algorithm.glyphgenerator.BigGlyph;
 import algorithm.glyphgenerator.BlowUp;
 import algorithm.glyphgenerator.GlyphGenerator;
@@ -364,6 +366,20 @@ public class GrowingGlyphs extends JFrame {
                     + "with different parameters.");
             return;
         }
+        if (daemon.getClusterer() instanceof KineticClusterer &&
+                !KineticClusterer.supports(daemon.getGrowFunction())) {
+            status.setText("The kinetic clusterer only supports linearly "
+                    + "growing squares, without borders or compression.");
+            return;
+        }
+        if (daemon.getClusterer() instanceof PartitionedClusterer &&
+                (!PartitionedClusterer.supports(daemon.getGrowFunction()) ||
+                    !B.ROBUST.get())) {
+            status.setText("The partitioned clusterer only supports linearly "
+                    + "growing glyphs, without borders or compression, in "
+                    + "robust mode.");
+            return;
+        }
         status.setText("Clustering...");
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -636,6 +652,7 @@ public class GrowingGlyphs extends JFrame {
             optionsMenu.addSeparator();
             JMenu clustererMenu = new JMenu("Clusterer");
             ButtonGroup clustererGroup = new ButtonGroup();
+            Map<String, JRadioButtonMenuItem> clustererItems = new HashMap<>();
             for (String clustererName : Clusterer.getAll().keySet()
                     .stream().sorted().toArray(String[]::new)) {
                 JRadioButtonMenuItem item = new JRadioButtonMenuItem(
@@ -643,12 +660,35 @@ public class GrowingGlyphs extends JFrame {
                         (clustererName.equals(S.CLUSTERER.get())));
                 clustererGroup.add(item);
                 clustererMenu.add(item);
+                clustererItems.put(clustererName, item);
                 item.addActionListener((ActionEvent e) ->
                         frame.daemon.setClusterer(
                             Clusterer.get(e.getActionCommand(),
                                     frame.daemon.getTree()))
                     );
             }
+            // the kinetic and partitioned clusterers can only be used with
+            // some grow functions
+            Runnable updateClusterers = () -> {
+                GrowFunction g = frame.daemon.getGrowFunction();
+                for (Map.Entry<String, JRadioButtonMenuItem> entry :
+                        clustererItems.entrySet()) {
+                    Class<? extends Clusterer> cClass =
+                            Clusterer.getAll().get(entry.getKey());
+                    JRadioButtonMenuItem item = entry.getValue();
+                    if (cClass == KineticClusterer.class) {
+                        item.setEnabled(KineticClusterer.supports(g));
+                    } else if (cClass == PartitionedClusterer.class) {
+                        item.setEnabled(PartitionedClusterer.supports(g));
+                    } else {
+                        continue;
+                    }
+                    if (item.isSelected() && !item.isEnabled()) {
+                        clustererItems.get(S.CLUSTERER.get()).doClick();
+                    }
+                }
+            };
+            updateClusterers.run();
             optionsMenu.add(clustererMenu);
             JMenu growFunctionMenu = new JMenu("Grow function");
             ButtonGroup growFunctionGroup = new ButtonGroup();
@@ -659,10 +699,11 @@ public class GrowingGlyphs extends JFrame {
                         (growFunctionName == S.GROW_FUNCTION.get()));
                 growFunctionGroup.add(item);
                 growFunctionMenu.add(item);
-                item.addActionListener((ActionEvent e) ->
+                item.addActionListener((ActionEvent e) -> {
                         frame.daemon.setGrowFunction(
-                            GrowFunction.getAll().get(e.getActionCommand()))
-                    );
+                            GrowFunction.getAll().get(e.getActionCommand()));
+                        updateClusterers.run();
+                    });
             }
             optionsMenu.add(growFunctionMenu);
             optionsMenu.add(new MenuItem("Cluster", frame::run));
@@ -0,0 +1,58 @@
+package io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Sink that writes merges as fixed size big-endian records: three ints for
+ * the IDs, three doubles for time and center and an int for the weight.
+ */
+public class BinaryMergeSink implements MergeSink {
+
+    /**
+     * Size in bytes of a single record.
+     */
+    public static final int RECORD_BYTES = 4 * Integer.BYTES + 3 * Double.BYTES;
+
+
+    private final DataOutputStream writer;
+
+
+    /**
+     * Construct a sink that writes to the given file.
+     *
+     * @throws FileNotFoundException When the file cannot be opened for writing.
+     */
+    public BinaryMergeSink(File file) throws FileNotFoundException {
+        this.writer = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    @Override
+    public void merge(int childA, int childB, int merged, double at,
+            double x, double y, int n) {
+        try {
+            writer.writeInt(childA);
+            writer.writeInt(childB);
+            writer.writeInt(merged);
+            writer.writeDouble(at);
+            writer.writeDouble(x);
+            writer.writeDouble(y);
+            writer.writeInt(n);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
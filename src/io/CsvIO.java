@@ -3,7 +3,9 @@ package io;
 import java.awt.geom.Point2D;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
@@ -81,12 +83,27 @@ public class CsvIO {
                 }
             }
             // insert data into tree
+            List<Glyph> glyphs = new ArrayList<>(read.size());
+            int count = 0;
+            double[] xs = new double[read.size()];
+            double[] ys = new double[read.size()];
+            int[] ns = new int[read.size()];
             for (LatLng ll : read.keySet()) {
                 // QuadTree is built on zoom level 1, but centered around [0, 0]
                 Point2D p = ll.toPoint(1);
-                tree.insertCenterOf(new Glyph(p.getX() - 256, p.getY() - 256,
-                        read.get(ll), true));
+                xs[count] = p.getX() - 256;
+                ys[count] = p.getY() - 256;
+                ns[count] = read.get(ll);
+                count++;
             }
+            int[] order = (B.HILBERT_ORDER.get() ?
+                    Utils.hilbertOrder(tree.getRectangle(), xs, ys, count) :
+                    null);
+            for (int j = 0; j < count; ++j) {
+                int i = (order == null ? j : order[j]);
+                glyphs.add(new Glyph(xs[i], ys[i], ns[i], true));
+            }
+            tree.insertCentersOf(glyphs);
             if (B.LOGGING_ENABLED.get()) {
                 LOGGER.log(Level.INFO, "loaded {0} locations", read.size());
             }
@@ -0,0 +1,55 @@
+package io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sink that writes merges as lines of comma-separated values, preceded by a
+ * title line that names the columns.
+ */
+public class CsvMergeSink implements MergeSink {
+
+    private final Writer writer;
+
+
+    /**
+     * Construct a sink that writes to the given file.
+     *
+     * @throws IOException When the file cannot be opened for writing.
+     */
+    public CsvMergeSink(File file) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8));
+        try {
+            this.writer.write("childA,childB,merged,at,x,y,n\n");
+        } catch (IOException e) {
+            this.writer.close();
+            throw e;
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    @Override
+    public void merge(int childA, int childB, int merged, double at,
+            double x, double y, int n) {
+        try {
+            // Double#toString does not depend on the locale
+            writer.write(childA + "," + childB + "," + merged + "," + at + ","
+                    + x + "," + y + "," + n + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
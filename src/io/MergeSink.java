@@ -0,0 +1,166 @@
+package io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import datastructure.Glyph;
+import datastructure.HierarchicalClustering;
+
+/**
+ * Destination of the merges of a clustering, that are written one by one as
+ * they happen rather than kept in a {@link HierarchicalClustering}. Every
+ * glyph in the clustering has an int ID. Every record names the IDs of the two
+ * glyphs that merged, the ID of the glyph they merged into, the time at which
+ * the merge happened and the center and weight of the merged glyph.
+ *
+ * Glyphs of the input are written as records as well, before they are merged
+ * with anything. Such records have child IDs of -1 and a time of 0, so that
+ * the center and weight of every ID can be found in the records.
+ *
+ * When more than two glyphs merge at once, this is written as a sequence of
+ * merges of two glyphs at the same time.
+ */
+public interface MergeSink extends Closeable {
+
+    /**
+     * Returns a sink that writes to the given file. Files with a {@code .csv}
+     * extension are written by a {@link CsvMergeSink}, files with a
+     * {@code .mtree} extension by a {@link MergeTreeWriter}, and other files
+     * by a {@link BinaryMergeSink}.
+     *
+     * @param file File to write to. It is overwritten if it exists.
+     * @throws IOException When the file cannot be opened for writing.
+     */
+    public static MergeSink open(File file) throws IOException {
+        if (file.getName().endsWith(".csv")) {
+            return new CsvMergeSink(file);
+        }
+        if (file.getName().endsWith(".mtree")) {
+            return new MergeTreeWriter(file);
+        }
+        return new BinaryMergeSink(file);
+    }
+
+
+    /**
+     * Write a single record.
+     *
+     * @param childA ID of the first glyph that merged, or -1 for an input glyph.
+     * @param childB ID of the second glyph that merged, or -1 for an input glyph.
+     * @param merged ID of the glyph that was created.
+     * @param at Time or zoom level at which the merge happened.
+     * @param x X-coordinate of the center of the created glyph.
+     * @param y Y-coordinate of the center of the created glyph.
+     * @param n Number of entities represented by the created glyph.
+     */
+    public void merge(int childA, int childB, int merged, double at,
+            double x, double y, int n);
+
+    /**
+     * Write all glyphs and merges of the given clustering, for clusterers that
+     * build a complete clustering rather than writing merges as they happen.
+     * Input glyphs are written first, and merges are written in the order in
+     * which they happen, although never before the merges that created the
+     * glyphs that merge. Nodes of the clustering that are created from a
+     * single other node, such as out of cell events, are not written.
+     *
+     * @param root Root of the clustering to write.
+     */
+    public default void write(HierarchicalClustering root) {
+        // give every node an ID; children are numbered before their parent,
+        // and a node created from k nodes takes k - 1 IDs, one for every merge
+        Map<HierarchicalClustering, Integer> ids = new IdentityHashMap<>();
+        List<HierarchicalClustering> merges = new ArrayList<>();
+        int nextId = 0;
+        Deque<HierarchicalClustering> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            HierarchicalClustering node = todo.peek();
+            List<HierarchicalClustering> from = node.getCreatedFrom();
+            if (from == null) {
+                todo.pop();
+                Glyph glyph = node.getGlyph();
+                ids.put(node, nextId);
+                merge(-1, -1, nextId++, 0, glyph.getX(), glyph.getY(),
+                        glyph.getN());
+                continue;
+            }
+            boolean childrenDone = true;
+            for (HierarchicalClustering child : from) {
+                if (!ids.containsKey(child)) {
+                    todo.push(child);
+                    childrenDone = false;
+                }
+            }
+            if (!childrenDone) {
+                continue;
+            }
+            todo.pop();
+            if (from.size() == 1) {
+                ids.put(node, ids.get(from.get(0)));
+            } else {
+                nextId += from.size() - 1;
+                ids.put(node, nextId - 1);
+                merges.add(node);
+            }
+        }
+
+        // write merges in the order in which they happen, but never before
+        // the merges that created the glyphs that merge
+        Map<HierarchicalClustering, List<HierarchicalClustering>> dependents =
+                new IdentityHashMap<>();
+        Map<HierarchicalClustering, Integer> waiting = new IdentityHashMap<>();
+        Queue<HierarchicalClustering> ready = new PriorityQueue<>();
+        for (HierarchicalClustering node : merges) {
+            int waitFor = 0;
+            for (HierarchicalClustering child : node.getCreatedFrom()) {
+                while (child.getCreatedFrom() != null &&
+                        child.getCreatedFrom().size() == 1) {
+                    child = child.getCreatedFrom().get(0);
+                }
+                if (child.getCreatedFrom() != null) {
+                    dependents.computeIfAbsent(child, (c) -> new ArrayList<>(1))
+                            .add(node);
+                    waitFor++;
+                }
+            }
+            if (waitFor == 0) {
+                ready.add(node);
+            } else {
+                waiting.put(node, waitFor);
+            }
+        }
+        while (!ready.isEmpty()) {
+            HierarchicalClustering node = ready.poll();
+            List<HierarchicalClustering> from = node.getCreatedFrom();
+            int id = ids.get(node) - (from.size() - 2);
+            int prevId = ids.get(from.get(0));
+            Glyph prev = from.get(0).getGlyph();
+            for (int i = 1; i < from.size(); ++i) {
+                Glyph glyph = (i == from.size() - 1 ? node.getGlyph() :
+                        new Glyph(prev, from.get(i).getGlyph()));
+                merge(prevId, ids.get(from.get(i)), id, node.getAt(),
+                        glyph.getX(), glyph.getY(), glyph.getN());
+                prevId = id++;
+                prev = glyph;
+            }
+            if (dependents.containsKey(node)) {
+                for (HierarchicalClustering dependent : dependents.get(node)) {
+                    if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        }
+    }
+
+}
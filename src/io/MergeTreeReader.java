@@ -0,0 +1,186 @@
+package io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reader of merge tree files, as written by {@link MergeTreeWriter}. The file
+ * is memory-mapped, and only the parts that are needed to answer a query are
+ * read. Glyphs are identified by their index in the file; glyphs are sorted
+ * on the time at which they are created.
+ *
+ * Finding the glyphs that are {@linkplain #aliveAt(double) alive} at a given
+ * time takes O(log n + k) time, where {@code k} is the number of such glyphs.
+ */
+public class MergeTreeReader implements Closeable {
+
+    private final FileChannel channel;
+    private final DoubleBuffer at;
+    private final DoubleBuffer x;
+    private final DoubleBuffer y;
+    private final IntBuffer n;
+    private final IntBuffer parent;
+    private final IntBuffer pstNode;
+    private final DoubleBuffer pstSplit;
+    private final int size;
+
+
+    /**
+     * Open the given merge tree file.
+     *
+     * @throws IOException When the file cannot be read, is not a merge tree
+     *             file, or is truncated.
+     */
+    public MergeTreeReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("merge tree file is larger than 2 GB");
+        }
+        MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+                channel.size());
+        if (buffer.limit() < MergeTreeWriter.HEADER_BYTES ||
+                buffer.getInt(0) != MergeTreeWriter.MAGIC ||
+                buffer.getInt(4) != MergeTreeWriter.VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a merge tree file");
+        }
+        this.size = buffer.getInt(8);
+        int pstSize = buffer.getInt(12);
+        // check that all sections fit the file exactly, before slicing
+        long expected = MergeTreeWriter.HEADER_BYTES +
+                (long) size * (3 * Double.BYTES + 2 * Integer.BYTES) +
+                (long) pstSize * (Integer.BYTES + Double.BYTES);
+        if (size < 0 || pstSize < 0 || expected != buffer.limit()) {
+            channel.close();
+            throw new IOException(String.format("%s is truncated or corrupt: "
+                    + "header announces %d glyphs and %d tree nodes, which "
+                    + "do not match its size of %d bytes", file, size, pstSize,
+                    buffer.limit()));
+        }
+        int offset = MergeTreeWriter.HEADER_BYTES;
+        this.at = slice(buffer, offset, size * Double.BYTES).asDoubleBuffer();
+        offset += size * Double.BYTES;
+        this.x = slice(buffer, offset, size * Double.BYTES).asDoubleBuffer();
+        offset += size * Double.BYTES;
+        this.y = slice(buffer, offset, size * Double.BYTES).asDoubleBuffer();
+        offset += size * Double.BYTES;
+        this.n = slice(buffer, offset, size * Integer.BYTES).asIntBuffer();
+        offset += size * Integer.BYTES;
+        this.parent = slice(buffer, offset, size * Integer.BYTES).asIntBuffer();
+        offset += size * Integer.BYTES;
+        this.pstNode = slice(buffer, offset, pstSize * Integer.BYTES)
+                .asIntBuffer();
+        offset += pstSize * Integer.BYTES;
+        this.pstSplit = slice(buffer, offset, pstSize * Double.BYTES)
+                .asDoubleBuffer();
+    }
+
+
+    /**
+     * Returns the indices of the glyphs that are alive at the given time, in
+     * no particular order. A glyph is alive from the time it is created, up
+     * to but not including the time at which it merges into another glyph.
+     */
+    public int[] aliveAt(double at) {
+        int[] result = new int[16];
+        int count = 0;
+        // walk the priority search tree, skipping subtrees in which all glyphs
+        // merge at or before the given time, or are created after it
+        int[] stack = new int[64];
+        int top = 0;
+        if (pstNode.limit() > 0) {
+            stack[top++] = 0;
+        }
+        while (top > 0) {
+            int pos = stack[--top];
+            int node = pstNode.get(pos);
+            if (node < 0 || getMergedAt(node) <= at) {
+                continue;
+            }
+            if (getAt(node) <= at) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = node;
+            }
+            if (2 * pos + 1 < pstNode.limit()) {
+                if (pstSplit.get(pos) <= at) {
+                    stack[top++] = 2 * pos + 2;
+                }
+                stack[top++] = 2 * pos + 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the time at which the glyph with the given index is created.
+     */
+    public double getAt(int glyph) {
+        return at.get(glyph);
+    }
+
+    /**
+     * Returns the time at which the glyph with the given index merges into
+     * another glyph, or infinity if it never does.
+     */
+    public double getMergedAt(int glyph) {
+        int p = parent.get(glyph);
+        return (p < 0 ? Double.POSITIVE_INFINITY : at.get(p));
+    }
+
+    public int getN(int glyph) {
+        return n.get(glyph);
+    }
+
+    /**
+     * Returns the index of the glyph that the glyph with the given index
+     * merges into, or -1 if it never does.
+     */
+    public int getParent(int glyph) {
+        return parent.get(glyph);
+    }
+
+    public double getX(int glyph) {
+        return x.get(glyph);
+    }
+
+    public double getY(int glyph) {
+        return y.get(glyph);
+    }
+
+    /**
+     * Returns the number of glyphs in the file.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns a buffer on the given range of bytes of the given buffer.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int offset,
+            int length) {
+        ByteBuffer copy = buffer.duplicate();
+        copy.position(offset);
+        copy.limit(offset + length);
+        return copy.slice();
+    }
+
+}
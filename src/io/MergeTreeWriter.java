@@ -0,0 +1,227 @@
+package io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import datastructure.HierarchicalClustering;
+
+/**
+ * Sink that collects merges in primitive columns, and writes them as a merge
+ * tree file when it is closed. Such files can be queried for the glyphs that
+ * are alive at a given time without reading them completely, see
+ * {@link MergeTreeReader}.
+ *
+ * A merge tree file starts with a header of four ints: {@link #MAGIC}, the
+ * {@link #VERSION}, the number of glyphs {@code N} and the size {@code S} of
+ * the index. Then follow columns of {@code N} values each: the time at which
+ * every glyph is created (doubles), the x- and y-coordinates of the centers of
+ * the glyphs (doubles), their weights (ints) and the index of the glyph every
+ * glyph merges into (ints, -1 for the root). Glyphs are sorted on the time at
+ * which they are created, and always come after the glyphs they are created
+ * from. Finally, the index is a priority search tree of {@code S} nodes on the
+ * periods during which glyphs are alive: an int column with the index of the
+ * glyph in every node or -1, and a double column with the time that splits
+ * the subtrees of every node.
+ *
+ * All values are big-endian. A glyph is alive at time {@code t} when it is
+ * created at or before {@code t}, and the glyph it merges into is created
+ * after {@code t}. When a glyph is created before one of the glyphs it is
+ * created from, which the {@link algorithm.clustering.QuadTreeClusterer} can
+ * do in rare cases, it is recorded as being created at the same time as that
+ * glyph, so that every glyph is alive during a single period.
+ */
+public class MergeTreeWriter implements MergeSink {
+
+    /**
+     * First int of every merge tree file.
+     */
+    public static final int MAGIC = 0x47474D54;
+    /**
+     * Version of the merge tree file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size in bytes of the header of a merge tree file.
+     */
+    public static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+
+    /**
+     * Write the given clustering to the given file as a merge tree file.
+     */
+    public static void write(HierarchicalClustering root, File file)
+            throws IOException {
+        try (MergeTreeWriter writer = new MergeTreeWriter(file)) {
+            writer.write(root);
+        }
+    }
+
+
+    private final File file;
+    /**
+     * Columns of values of glyphs, indexed by the ID they were written with.
+     */
+    private double[] at;
+    private double[] x;
+    private double[] y;
+    private int[] n;
+    private int[] parent;
+    /**
+     * Order in which glyphs were written, indexed by ID.
+     */
+    private int[] written;
+    /**
+     * Number of glyphs written so far.
+     */
+    private int size;
+
+
+    /**
+     * Construct a writer that writes to the given file when it is closed.
+     */
+    public MergeTreeWriter(File file) {
+        this.file = file;
+        this.at = new double[64];
+        this.x = new double[64];
+        this.y = new double[64];
+        this.n = new int[64];
+        this.parent = new int[64];
+        this.written = new int[64];
+        this.size = 0;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        // sort glyphs on creation time; glyphs are written after the glyphs
+        // they are created from, which keeps those first at equal times
+        Integer[] byAt = new Integer[at.length];
+        int ids = 0;
+        for (int id = 0; id < at.length; ++id) {
+            if (written[id] > 0) {
+                byAt[ids++] = id;
+            }
+        }
+        Arrays.sort(byAt, 0, ids, (a, b) -> {
+            int d = Double.compare(at[a], at[b]);
+            return (d != 0 ? d : Integer.compare(written[a], written[b]));
+        });
+        int[] index = new int[at.length];
+        for (int i = 0; i < ids; ++i) {
+            index[byAt[i]] = i;
+        }
+        int[] order = new int[ids];
+        double[] start = new double[ids];
+        double[] end = new double[ids];
+        for (int i = 0; i < ids; ++i) {
+            order[i] = i;
+            start[i] = at[byAt[i]];
+            end[i] = (parent[byAt[i]] < 0 ? Double.POSITIVE_INFINITY :
+                    at[parent[byAt[i]]]);
+        }
+
+        // build the priority search tree on the periods glyphs are alive
+        int height = 32 - Integer.numberOfLeadingZeros(ids);
+        int[] pstNode = new int[(1 << height) - 1];
+        double[] pstSplit = new double[pstNode.length];
+        Arrays.fill(pstNode, -1);
+        build(order, 0, ids, 0, start, end, pstNode, pstSplit);
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids);
+            out.writeInt(pstNode.length);
+            for (int i = 0; i < ids; ++i) {
+                out.writeDouble(at[byAt[i]]);
+            }
+            for (int i = 0; i < ids; ++i) {
+                out.writeDouble(x[byAt[i]]);
+            }
+            for (int i = 0; i < ids; ++i) {
+                out.writeDouble(y[byAt[i]]);
+            }
+            for (int i = 0; i < ids; ++i) {
+                out.writeInt(n[byAt[i]]);
+            }
+            for (int i = 0; i < ids; ++i) {
+                int p = parent[byAt[i]];
+                out.writeInt(p < 0 ? -1 : index[p]);
+            }
+            for (int node : pstNode) {
+                out.writeInt(node);
+            }
+            for (double split : pstSplit) {
+                out.writeDouble(split);
+            }
+        }
+    }
+
+    @Override
+    public void merge(int childA, int childB, int merged, double at,
+            double x, double y, int n) {
+        ensureCapacity(merged);
+        if (childA >= 0) {
+            // see the class comment on glyphs created before their children
+            at = Math.max(at, Math.max(this.at[childA], this.at[childB]));
+            this.parent[childA] = merged;
+            this.parent[childB] = merged;
+        }
+        this.at[merged] = at;
+        this.x[merged] = x;
+        this.y[merged] = y;
+        this.n[merged] = n;
+        this.parent[merged] = -1;
+        this.written[merged] = ++size;
+    }
+
+
+    /**
+     * Build the subtree of the priority search tree at the given position on
+     * the glyphs {@code order[lo, hi)}, which are sorted on start time. The
+     * node is the glyph that is alive until the latest time, and the others
+     * are split evenly over the two subtrees. Changes the order of the glyphs
+     * in the range, but keeps them sorted.
+     */
+    private static void build(int[] order, int lo, int hi, int pos,
+            double[] start, double[] end, int[] pstNode, double[] pstSplit) {
+        if (lo >= hi) {
+            return;
+        }
+        int max = lo;
+        for (int i = lo + 1; i < hi; ++i) {
+            if (end[order[i]] > end[order[max]]) {
+                max = i;
+            }
+        }
+        pstNode[pos] = order[max];
+        System.arraycopy(order, max + 1, order, max, hi - max - 1);
+        hi--;
+        int mid = (lo + hi) >>> 1;
+        pstSplit[pos] = (mid < hi ? start[order[mid]] : Double.POSITIVE_INFINITY);
+        build(order, lo, mid, 2 * pos + 1, start, end, pstNode, pstSplit);
+        build(order, mid, hi, 2 * pos + 2, start, end, pstNode, pstSplit);
+    }
+
+    /**
+     * Grow the columns so that they can hold a glyph with the given ID.
+     */
+    private void ensureCapacity(int id) {
+        if (id < at.length) {
+            return;
+        }
+        int capacity = Math.max(id + 1, at.length * 2);
+        at = Arrays.copyOf(at, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        n = Arrays.copyOf(n, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        written = Arrays.copyOf(written, capacity);
+    }
+
+}
@@ -6,6 +6,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
@@ -32,13 +33,34 @@ public class PointIO {
         if (B.TIMERS_ENABLED.get()) {
             Utils.Timers.start("reading file");
         }
+        List<Glyph> glyphs = new ArrayList<>();
         List<Glyph> largest = new ArrayList<>(I.LARGE_SQUARES_TRACK.get());
         int smallestLarge = Integer.MAX_VALUE;
         try (Scanner reader = new Scanner(new FileInputStream(file))) {
+            // read all points first, so that they can be reordered
+            int count = 0;
+            double[] xs = new double[64];
+            double[] ys = new double[64];
+            int[] ns = new int[64];
             while (reader.hasNextDouble()) {
-                double x = reader.nextDouble();
-                double y = reader.nextDouble();
-                int n = reader.nextInt(10);
+                if (count == xs.length) {
+                    xs = Arrays.copyOf(xs, count * 2);
+                    ys = Arrays.copyOf(ys, count * 2);
+                    ns = Arrays.copyOf(ns, count * 2);
+                }
+                xs[count] = reader.nextDouble();
+                ys[count] = reader.nextDouble();
+                ns[count] = reader.nextInt(10);
+                count++;
+            }
+            int[] order = (B.HILBERT_ORDER.get() ?
+                    Utils.hilbertOrder(tree.getRectangle(), xs, ys, count) :
+                    null);
+            for (int j = 0; j < count; ++j) {
+                int i = (order == null ? j : order[j]);
+                double x = xs[i];
+                double y = ys[i];
+                int n = ns[i];
                 Glyph glyph = new Glyph(x, y, n, true);
                 if (I.LARGE_SQUARES_TRACK.get() > 0 && (
                         largest.size() < I.LARGE_SQUARES_TRACK.get() ||
@@ -57,9 +79,10 @@ public class PointIO {
                         smallestLarge = Math.min(smallestLarge, large.getN());
                     }
                 }
-                tree.insertCenterOf(glyph);
+                glyphs.add(glyph);
                 sum += n;
             }
+            tree.insertCentersOf(glyphs);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
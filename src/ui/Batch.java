@@ -9,6 +9,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -17,7 +18,10 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import algorithm.clustering.GridClusterer;
+import algorithm.clustering.KineticClusterer;
 import algorithm.clustering.NaiveClusterer;
+import algorithm.clustering.PartitionedClusterer;
 import algorithm.clustering.QuadTreeClusterer;
 import datastructure.growfunction.GrowFunction;
 import datastructure.growfunction.shape.CirclesGrowShape;
@@ -27,9 +31,11 @@ import datastructure.growfunction.speed.GrowSpeed;
 import datastructure.growfunction.speed.LinearAreaGrowSpeed;
 import datastructure.growfunction.speed.LinearGrowSpeed;
 import datastructure.growfunction.speed.LogarithmicGrowSpeed;
+import datastructure.queues.BucketingStrategy;
 import gui.Settings.Setting;
 import logging.ConfigurableConsoleHandler;
 import utils.Constants.B;
+import utils.Constants.E;
 import utils.Utils;
 import utils.Utils.Stats;
 import utils.Utils.Timers;
@@ -45,6 +51,9 @@ public class Batch {
      *
      * @param args First argument needs to be the path to the growing-glyphs
      *            repository. This is used to find input and write output.
+     *            Any further arguments name algorithms to run in addition to
+     *            the default ones, such as {@code basic:ladder},
+     *            {@code kinetic}, {@code grid} or {@code partitioned}.
      * @throws IOException If a file could not be created.
      */
     public static void main(String[] args) throws IOException {
@@ -57,7 +66,7 @@ public class Batch {
             throw new IllegalArgumentException("argument must be directory path");
         }
 
-        new Batch(home).run();
+        new Batch(home, Arrays.asList(args).subList(1, args.length)).run();
     }
 
 
@@ -71,9 +80,17 @@ public class Batch {
 
 
     public Batch(File home) {
-        this.algorithms = Arrays.asList(
+        this(home, Collections.emptyList());
+    }
+
+    /**
+     * Construct a batch that runs the given algorithms after the default ones.
+     */
+    public Batch(File home, List<String> extraAlgorithms) {
+        this.algorithms = new ArrayList<>(Arrays.asList(
                 "naive", "basic:all events", "basic", "basic:big"
-            );
+            ));
+        this.algorithms.addAll(extraAlgorithms);
         this.growFunctions = new ArrayList<>(6);
         this.home = home;
         this.inputs = Arrays.asList(
@@ -170,7 +187,7 @@ public class Batch {
 
         for (Class<? extends GrowSpeed> speed : speeds) {
             for (Class<? extends GrowShape> shape : shapes) {
-                growFunctions.add(new GrowFunction(shape, speed));
+                growFunctions.add(GrowFunction.create(shape, speed));
             }
         }
     }
@@ -189,10 +206,20 @@ public class Batch {
         case "naive":
             daemon.setClusterer(new NaiveClusterer(daemon.getTree()));
             break;
+        case "kinetic":
+            daemon.setClusterer(new KineticClusterer(daemon.getTree()));
+            break;
+        case "grid":
+            daemon.setClusterer(new GridClusterer(daemon.getTree()));
+            break;
+        case "partitioned":
+            daemon.setClusterer(new PartitionedClusterer(daemon.getTree()));
+            break;
         };
 
         B.BIG_GLYPHS.set(false);
         B.ROBUST.set(false);
+        E.QUEUE_BUCKETING.set(BucketingStrategy.NO_BUCKETING);
 
         for (int i = 1; i < elements.length; ++i) {
             switch (elements[i]) {
@@ -202,6 +229,12 @@ public class Batch {
             case "big":
                 B.BIG_GLYPHS.set(true);
                 break;
+            case "bucketing on size":
+                E.QUEUE_BUCKETING.set(BucketingStrategy.ON_SIZE);
+                break;
+            case "ladder":
+                E.QUEUE_BUCKETING.set(BucketingStrategy.LADDER);
+                break;
             }
         }
     }
@@ -280,7 +313,13 @@ public class Batch {
             //  - naive on >10k locations;
             //  - basic:all events on >10k locations.
             // we don't do big glyphs on non-linear grow speed - it won't work
+            // and the kinetic clusterer only does linearly growing squares, the
+            // partitioned clusterer only linearly growing glyphs in robust mode
             if ((B.BIG_GLYPHS.get() && g.getSpeed().getClass() != LinearGrowSpeed.class) ||
+                    (daemon.getClusterer().getClass() == KineticClusterer.class &&
+                        !KineticClusterer.supports(g)) ||
+                    (daemon.getClusterer().getClass() == PartitionedClusterer.class &&
+                        (!PartitionedClusterer.supports(g) || !B.ROBUST.get())) ||
                     (daemon.getClusterer().getClass() == NaiveClusterer.class && numLocations > 1e4) ||
                     (daemon.getClusterer().getClass() == QuadTreeClusterer.class &&
                         numLocations > 1e4 && B.ROBUST.get())) {
@@ -2,9 +2,13 @@ package ui;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
 
+import algorithm.clustering.GridClusterer;
+import algorithm.clustering.KineticClusterer;
 import algorithm.clustering.NaiveClusterer;
+import algorithm.clustering.PartitionedClusterer;
 import algorithm.clustering.QuadTreeClusterer;
 import datastructure.growfunction.GrowFunction;
 import datastructure.growfunction.shape.CirclesGrowShape;
@@ -14,19 +18,21 @@ import datastructure.growfunction.speed.GrowSpeed;
 import datastructure.growfunction.speed.LinearAreaGrowSpeed;
 import datastructure.growfunction.speed.LinearGrowSpeed;
 import datastructure.growfunction.speed.LogarithmicGrowSpeed;
+import io.MergeSink;
 import logging.ConfigurableConsoleHandler;
 import utils.Constants.B;
 
 public class CLI {
 
     /**
-     * @param args [input file, output file, algorithm (naive/quad/plus/big),
-     *            grow function, collect stats (y/n)]
+     * @param args [input file, output file, algorithm
+     *            (naive/quad/plus/big/kinetic/grid/partitioned), grow function,
+     *            collect stats (y/n), merges file (optional)]
      */
     public static void main(String[] args) {
         if (args.length < 5) {
             System.err.println("usage: CLI [input] [output] [algorithm] "
-                    + "[grow function] [stats]");
+                    + "[grow function] [stats] [merges]");
             return;
         }
 
@@ -36,6 +42,7 @@ public class CLI {
         String pAlgorithm = args[2];
         String pGrowFunction = args[3];
         String pStats = args[4];
+        String pMerges = (args.length > 5 ? args[5] : null);
 
 
         // collect stats?
@@ -59,9 +66,18 @@ public class CLI {
 
         // select correct algorithm
         switch (pAlgorithm) {
+        case "grid":
+            daemon.setClusterer(new GridClusterer(daemon.getTree()));
+            break;
+        case "kinetic":
+            daemon.setClusterer(new KineticClusterer(daemon.getTree()));
+            break;
         case "naive":
             daemon.setClusterer(new NaiveClusterer(daemon.getTree()));
             break;
+        case "partitioned":
+            daemon.setClusterer(new PartitionedClusterer(daemon.getTree()));
+            break;
         case "quad":
         case "plus":
         case "big":
@@ -74,7 +90,7 @@ public class CLI {
         // with the correct parameters
         B.BIG_GLYPHS.set(false);
         B.ROBUST.set(false);
-        if (pAlgorithm.equals("quad")) {
+        if (pAlgorithm.equals("quad") || pAlgorithm.equals("partitioned")) {
             B.ROBUST.set(true);
         } else if (pAlgorithm.equals("big")) {
             B.BIG_GLYPHS.set(true);
@@ -103,11 +119,33 @@ public class CLI {
             System.err.println("Grow function speed must be 'linear' or 'lineararea' or 'logarithmic'.");
             return;
         }
-        daemon.setGrowFunction(new GrowFunction(shape, speed));
+        GrowFunction g = GrowFunction.create(shape, speed);
+        if (pAlgorithm.equals("kinetic") && !KineticClusterer.supports(g)) {
+            System.err.println("The kinetic algorithm needs 'linear-squares'.");
+            return;
+        }
+        if (pAlgorithm.equals("partitioned") && !PartitionedClusterer.supports(g)) {
+            System.err.println("The partitioned algorithm needs 'linear-circles' or 'linear-squares'.");
+            return;
+        }
+        daemon.setGrowFunction(g);
 
         // open right input
         daemon.openFile(new File(pInput));
 
+        // set up a sink for merges, if needed
+        MergeSink sink = null;
+        if (pMerges != null) {
+            try {
+                sink = MergeSink.open(new File(pMerges));
+            } catch (IOException e) {
+                System.err.println("Cannot open merges file for writing.");
+                ConfigurableConsoleHandler.undoRedirect();
+                return;
+            }
+            daemon.setSink(sink);
+        }
+
         // cluster!
         try {
             daemon.cluster();
@@ -115,6 +153,13 @@ public class CLI {
             System.err.println("Timed out.");
         } finally {
             ConfigurableConsoleHandler.undoRedirect();
+            if (sink != null) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    System.err.println("Cannot write merges file.");
+                }
+            }
         }
     }
 
@@ -12,6 +12,7 @@ import datastructure.growfunction.GrowFunction;
 import gui.GrowingGlyphs;
 import gui.Settings.Setting;
 import io.CsvIO;
+import io.MergeSink;
 import io.PointIO;
 import utils.Constants.B;
 import utils.Constants.D;
@@ -37,6 +38,7 @@ public class GrowingGlyphsDaemon {
     private String dataSet;
     private File lastOpened;
     private int n;
+    private MergeSink sink;
     private QuadTree tree;
 
     public GrowingGlyphsDaemon(int w, int h, GrowFunction g) {
@@ -47,6 +49,7 @@ public class GrowingGlyphsDaemon {
         this.dataSet = null;
         this.lastOpened = null;
         this.n = 0;
+        this.sink = null;
     }
 
     public GrowFunction getGrowFunction() {
@@ -75,6 +78,10 @@ public class GrowingGlyphsDaemon {
      * This method will do nothing if the current data set has already been
      * clustered before. The flag for that is cleared when a new file is opened.
      *
+     * When a {@link #setSink(MergeSink) sink} is set, merges are written to it.
+     * Clusterers that cannot write merges as they happen build a clustering
+     * that is written to the sink afterwards.
+     *
      * @param includeOutOfCell Whether points in time where glyphs grow out of
      *            their cell should be included in the output.
      * @param step Whether the algorithm should pause after every event, only
@@ -104,7 +111,11 @@ public class GrowingGlyphsDaemon {
             LOGGER.log(Level.FINE, "{0}using big glyph optimization",
                     (B.BIG_GLYPHS.get() ? "" : "not "));
         }
+        clusterer.setSink(sink);
         clusterer.cluster(g, includeOutOfCell, step);
+        if (sink != null && clusterer.getClustering() != null) {
+            sink.write(clusterer.getClustering());
+        }
         clustered = true;
     }
 
@@ -114,7 +125,8 @@ public class GrowingGlyphsDaemon {
 
     /**
      * Returns the latest result of executing the clustering algorithm. Initially
-     * {@code null}.
+     * {@code null}, and also {@code null} when merges were written to a
+     * {@link #setSink(MergeSink) sink} as they happened.
      */
     public HierarchicalClustering getClustering() {
         return clusterer.getClustering();
@@ -173,6 +185,16 @@ public class GrowingGlyphsDaemon {
         }
     }
 
+    /**
+     * Write merges to the given sink when clustering, rather than only
+     * keeping the resulting clustering. The sink is not closed by the daemon.
+     *
+     * @param sink Sink to write to, or {@code null} to not write merges.
+     */
+    public void setSink(MergeSink sink) {
+        this.sink = sink;
+    }
+
     public void setGrowFunction(GrowFunction g) {
         this.g = g;
     }
@@ -3,12 +3,15 @@ package utils;
 import java.io.File;
 
 import algorithm.FirstMergeRecorder;
+import algorithm.clustering.PartitionedClusterer;
 import algorithm.clustering.QuadTreeClusterer;
 import datastructure.Glyph;
 import datastructure.QuadTree;
 import datastructure.QuadTreeChangeListener;
 import datastructure.growfunction.GrowFunction;
 import datastructure.queues.BucketingStrategy;
+import datastructure.queues.EventHeap;
+import datastructure.queues.MultiQueue;
 import io.PointIO;
 import ui.GrowingGlyphsDaemon;
 import utils.Utils.Timers;
@@ -45,12 +48,42 @@ public final class Constants {
          * {@linkplain #LOGGING_ENABLED logging is enabled}.
          */
         CHECK_NUMBER_REPRESENTED(false),
+        /**
+         * Whether the {@link PartitionedClusterer} compares its result to that
+         * of a {@link QuadTreeClusterer} on the same glyphs, and fails when
+         * the two differ.
+         */
+        CHECK_PARTITIONED(false),
         /**
          * Whether {@link QuadTree} {@link QuadTreeChangeListener listeners} are
          * accepted and notified of events.
          */
         ENABLE_LISTENERS(true),
 
+        /**
+         * Whether the {@link QuadTreeClusterer} should store its events in an
+         * {@link EventHeap} rather than in a {@link MultiQueue}. The former
+         * does not keep event objects alive while they are queued. When this
+         * is enabled, {@link E#QUEUE_BUCKETING} is ignored.
+         */
+        EVENT_HEAP(false),
+
+        /**
+         * Whether {@link GrowFunction#create(Class, Class)} returns one of the
+         * specialised grow functions of which shape and speed are fixed, when
+         * one exists for the requested combination. Those compute the exact
+         * same results as a generic grow function.
+         */
+        FUSED_GROW_FUNCTIONS(false),
+
+        /**
+         * Whether glyphs that are read from a file are created and inserted
+         * in the order of a Hilbert curve over the {@link QuadTree}, rather
+         * than in the order in which they appear in the file. Glyphs that are
+         * close in the plane then tend to be close in memory as well.
+         */
+        HILBERT_ORDER(false),
+
         /**
          * Whether messages should be logged at all. This overrides logging
          * configuration from {@code logging.properties} (but only negatively,
@@ -59,6 +92,24 @@ public final class Constants {
          */
         LOGGING_ENABLED(true),
 
+        /**
+         * Whether the {@link QuadTreeClusterer} creates the initial events of
+         * glyphs in different leaves of the {@link QuadTree} in parallel. The
+         * events are added to the queue in the same order as they would be
+         * when created sequentially.
+         */
+        PARALLEL_INITIALIZATION(false),
+
+        /**
+         * Whether {@link QuadTree} cells that are orphaned by a join are reused
+         * when cells are split later, rather than allocating new cells. A cell
+         * is only reused once no pending out of cell event and no glyph refers
+         * to it or to one of its descendants.
+         *
+         * This constant must not be changed while clustering.
+         */
+        QUADTREE_NODE_POOLING(false),
+
         /**
          * Whether merge events are to be created for all pairs of glyphs, or only
          * the first one. Setting this to {@code true} implies a performance hit.
@@ -152,6 +203,13 @@ public final class Constants {
          */
         MIN_ZOOM(0.1),
 
+        /**
+         * Fraction of the entries in an {@link EventHeap} that must be known to
+         * be stale before that queue is compacted. To disable compaction, a
+         * value of 0 or smaller can be set.
+         */
+        QUEUE_STALE_FRACTION(0.5),
+
         /**
          * How often the number of merge events processed so far should be
          * logged (if logging is {@link B#LOGGING_ENABLED enabled}). To
@@ -194,6 +252,8 @@ public final class Constants {
 
         /**
          * Whether the event queue should be split into multiple queues, and when.
+         * Can also be set to {@link BucketingStrategy#LADDER} to use a ladder
+         * queue instead. Ignored when {@link B#EVENT_HEAP} is enabled.
          */
         QUEUE_BUCKETING(BucketingStrategy.NO_BUCKETING);
 
@@ -206,6 +266,19 @@ public final class Constants {
             return (T) value;
         }
 
+        /**
+         * Change the value of the constant. Should not be needed normally!
+         *
+         * @param value New value for the constant.
+         */
+        public void set(Enum<?> value) {
+            if (value.getClass() != this.value.getClass()) {
+                throw new IllegalArgumentException("value must be of type "
+                        + this.value.getClass().getSimpleName());
+            }
+            this.value = value;
+        }
+
 
         /**
          * Value of the constant.
@@ -248,6 +321,20 @@ public final class Constants {
          */
         MAX_GLYPHS_PER_CELL(10),
 
+        /**
+         * The maximum number of alive glyphs that the children of a
+         * {@link QuadTree cell} may have together for them to be joined. By
+         * setting this lower than {@link #MAX_GLYPHS_PER_CELL}, a cell that
+         * has just been joined needs several more glyphs before it splits
+         * again, which prevents cells from being joined and split over and
+         * over when glyphs merge in dense areas.
+         *
+         * A negative value means that {@link #MAX_GLYPHS_PER_CELL} is used.
+         *
+         * @see #getJoinThreshold()
+         */
+        MAX_GLYPHS_PER_JOINED_CELL(-1),
+
         /**
          * Number of merge events that a glyph will record at most. This is not
          * strictly enforced by the glyph itself, but should be respected by the
@@ -262,7 +349,13 @@ public final class Constants {
          * Padding around the QuadTree in the GUI, in the preferred display
          * (before panning and zooming has taken place).
          */
-        PADDING(10);
+        PADDING(10),
+
+        /**
+         * Number of times the root cell is split into four to obtain the
+         * regions that the {@link PartitionedClusterer} clusters in parallel.
+         */
+        PARTITION_LEVELS(1);
 
 
         /**
@@ -272,6 +365,27 @@ public final class Constants {
             return value;
         }
 
+        /**
+         * Change the value of the constant. Should not be needed normally!
+         *
+         * @param value New value for the constant.
+         */
+        public void set(int value) {
+            this.value = value;
+        }
+
+
+        /**
+         * Returns the number of alive glyphs at or below which children of a
+         * cell are joined, taking the default of
+         * {@link #MAX_GLYPHS_PER_JOINED_CELL} into account.
+         */
+        public static int getJoinThreshold() {
+            int join = MAX_GLYPHS_PER_JOINED_CELL.get();
+            return (join < 0 ? MAX_GLYPHS_PER_CELL.get() :
+                    Math.min(join, MAX_GLYPHS_PER_CELL.get()));
+        }
+
 
         /**
          * Value of the constant.
@@ -37,6 +37,28 @@ public class Stat {
         return n;
     }
 
+    /**
+     * Add all values recorded by the given stat to this stat, as if they had
+     * been recorded on this stat directly.
+     *
+     * @param that Stat to take values from. It is not changed.
+     */
+    public void add(Stat that) {
+        if (that.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            min = that.min;
+            max = that.max;
+        } else {
+            min = Math.min(min, that.min);
+            max = Math.max(max, that.max);
+        }
+        average = (average * n + that.average * that.n) / (n + that.n);
+        sum += that.sum;
+        n += that.n;
+    }
+
     public double getSum() {
         return sum;
     }
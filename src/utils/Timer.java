@@ -24,6 +24,18 @@ public class Timer {
     }
 
 
+    /**
+     * Add the timings of the given timer to this timer, as if they had been
+     * made with this timer. When the given timer is running, the time since it
+     * was last started is not included.
+     *
+     * @param that Timer to take timings from. It is not changed.
+     */
+    public void add(Timer that) {
+        count += that.count;
+        totalElapsed += that.totalElapsed;
+    }
+
     /**
      * Returns how much time passed since this timer was last started.
      */
@@ -1,8 +1,8 @@
 package utils;
 
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -10,6 +10,7 @@ import java.util.Locale.Category;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -91,6 +92,70 @@ public class Utils {
                 clamp(py, rect.getMinY(), rect.getMaxY()));
     }
 
+    /**
+     * Returns the index of the given point along a Hilbert curve that fills
+     * the given rectangle. The rectangle is divided into a grid of
+     * {@code 2^16} by {@code 2^16} cells, points outside of the rectangle are
+     * clamped into it. Points that are close along the curve are close in the
+     * plane.
+     *
+     * @param rect Rectangle that the curve fills.
+     * @param px X-coordinate of the point.
+     * @param py Y-coordinate of the point.
+     * @return Index along the curve, in {@code [0, 2^32)}.
+     */
+    public static long hilbert(Rectangle2D rect, double px, double py) {
+        final int side = 1 << 16;
+        int x = (int) clamp((px - rect.getMinX()) / rect.getWidth() * side,
+                0, side - 1);
+        int y = (int) clamp((py - rect.getMinY()) / rect.getHeight() * side,
+                0, side - 1);
+        long d = 0;
+        for (int s = side >> 1; s > 0; s >>= 1) {
+            int rx = ((x & s) > 0 ? 1 : 0);
+            int ry = ((y & s) > 0 ? 1 : 0);
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant, so that the curve continues where it left
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Returns the order in which to visit the given points to follow a Hilbert
+     * curve that fills the given rectangle. Points that have the same
+     * {@link #hilbert(Rectangle2D, double, double) index} along the curve keep
+     * their relative order.
+     *
+     * @param rect Rectangle that the curve fills.
+     * @param x X-coordinates of the points.
+     * @param y Y-coordinates of the points.
+     * @param count Number of points, starting from the first.
+     * @return Indices of the points, in the order in which they are visited.
+     */
+    public static int[] hilbertOrder(Rectangle2D rect, double[] x, double[] y,
+            int count) {
+        // sort on index along the curve, then on index in the arrays
+        long[] keys = new long[count];
+        for (int i = 0; i < count; ++i) {
+            keys[i] = (hilbert(rect, x[i], y[i]) << 31) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; ++i) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
     /**
      * Returns the index of an object in an array, or -1 if it cannot be found.
      * Uses {@link Object#equals(Object)} to compare objects.
@@ -308,6 +373,9 @@ public class Utils {
 
     /**
      * Static utility functions related to statistics.
+     *
+     * Stats can be read from any thread, but only one thread may record them
+     * at a time, unless threads {@link #scope(Map) record their own}.
      */
     public static class Stats {
 
@@ -317,7 +385,12 @@ public class Utils {
         /**
          * Map of stat names to objects recording full stat information.
          */
-        private static Map<String, Stat> stats = new HashMap<>();
+        private static Map<String, Stat> stats = new ConcurrentHashMap<>();
+        /**
+         * Stats of threads that record their own, see {@link #scope(Map)}.
+         */
+        private static final ThreadLocal<Map<String, Stat>> scoped =
+                new ThreadLocal<>();
 
 
         public static void count(String name) {
@@ -329,6 +402,7 @@ public class Utils {
         }
 
         public static Stat get(String name) {
+            Map<String, Stat> stats = current();
             if (!stats.containsKey(name)) {
                 stats.put(name, new Stat(0));
             }
@@ -336,6 +410,7 @@ public class Utils {
         }
 
         public static void log(String name, Logger logger) {
+            Map<String, Stat> stats = current();
             if (!stats.containsKey(name)) {
                 return;
             }
@@ -343,6 +418,7 @@ public class Utils {
         }
 
         public static void logAll(Logger logger) {
+            Map<String, Stat> stats = current();
             logger.log(Level.FINE, "");
             logger.log(Level.FINE, "STATS");
             int padTo = stats.keySet().stream()
@@ -377,7 +453,25 @@ public class Utils {
                 });
         }
 
+        /**
+         * Add the given stats to the ones the current thread records in, as if
+         * they had been recorded there directly. This is used to report stats
+         * that threads recorded in a map of their own, see {@link #scope(Map)}.
+         *
+         * @param stats Stats to add. The map is not changed.
+         */
+        public static void merge(Map<String, Stat> stats) {
+            Map<String, Stat> current = current();
+            for (Entry<String, Stat> e : stats.entrySet()) {
+                if (!current.containsKey(e.getKey())) {
+                    current.put(e.getKey(), new Stat());
+                }
+                current.get(e.getKey()).add(e.getValue());
+            }
+        }
+
         public static void record(String name, double value) {
+            Map<String, Stat> stats = current();
             if (stats.containsKey(name)) {
                 stats.get(name).record(value);
             } else {
@@ -387,14 +481,43 @@ public class Utils {
         }
 
         public static void remove(String name) {
-            stats.remove(name);
+            current().remove(name);
         }
 
         public static void reset() {
-            stats.clear();
+            current().clear();
+        }
+
+        /**
+         * Record stats of the current thread in the given map, rather than in
+         * the map that is shared by all threads, until this method is called
+         * again. Code that clusters on several threads at the same time gives
+         * every thread a map of its own this way.
+         *
+         * @param stats Map to record stats in, or {@code null} to record in
+         *            the shared map again.
+         * @return The map that stats were recorded in before, or {@code null}
+         *         when that was the shared map.
+         */
+        public static Map<String, Stat> scope(Map<String, Stat> stats) {
+            Map<String, Stat> previous = scoped.get();
+            if (stats == null) {
+                scoped.remove();
+            } else {
+                scoped.set(stats);
+            }
+            return previous;
         }
 
 
+        /**
+         * Returns the map that the current thread records stats in.
+         */
+        private static Map<String, Stat> current() {
+            Map<String, Stat> stats = scoped.get();
+            return (stats == null ? Stats.stats : stats);
+        }
+
         /**
          * Given a stat name, return the name without tag.
          */
@@ -411,6 +534,9 @@ public class Utils {
 
     /**
      * Static utility functions related to wall clock timing.
+     *
+     * Timers can be read from any thread, but only one thread may start and
+     * stop them at a time, unless threads {@link #scope(Map) keep their own}.
      */
     public static class Timers {
 
@@ -434,7 +560,12 @@ public class Utils {
         /**
          * Map of timer names to objects recording full timer information.
          */
-        private static Map<String, Timer> timers = new HashMap<>();
+        private static Map<String, Timer> timers = new ConcurrentHashMap<>();
+        /**
+         * Timers of threads that keep their own, see {@link #scope(Map)}.
+         */
+        private static final ThreadLocal<Map<String, Timer>> scoped =
+                new ThreadLocal<>();
 
 
         /**
@@ -449,6 +580,7 @@ public class Utils {
          * @see #in(long, Units)
          */
         public static long elapsed(String name) {
+            Map<String, Timer> timers = current();
             if (!timers.containsKey(name)) {
                 return -1;
             }
@@ -463,6 +595,7 @@ public class Utils {
          * @see #in(long, Units)
          */
         public static long elapsing(String name) {
+            Map<String, Timer> timers = current();
             if (!timers.containsKey(name)) {
                 return -1;
             }
@@ -505,6 +638,7 @@ public class Utils {
          * @see Utils.Timers#start(String)
          */
         public static void log(String name, Logger logger, Level level) {
+            Map<String, Timer> timers = current();
             if (!timers.containsKey(name)) {
                 return;
             }
@@ -519,6 +653,7 @@ public class Utils {
          * @param logger Logger to log to.
          */
         public static void logAll(Logger logger) {
+            Map<String, Timer> timers = current();
             logger.log(Level.FINE, "");
             logger.log(Level.FINE, "TIMERS");
             int padTo = timers.keySet().stream().max(
@@ -566,6 +701,7 @@ public class Utils {
          * @see Utils.Timers#log(String, Logger)
          */
         public static void start(String name) {
+            Map<String, Timer> timers = current();
             if (timers.containsKey(name)) {
                 timers.get(name).start();
             } else {
@@ -581,11 +717,64 @@ public class Utils {
          * @param name Name of the timer to stop.
          */
         public static void stop(String name) {
-            timers.get(name).stop();
+            current().get(name).stop();
+        }
+
+        /**
+         * Add the given timers to the ones the current thread keeps, as if they
+         * had been timed there directly. This is used to report timers that
+         * threads kept in a map of their own, see {@link #scope(Map)}. Timers
+         * that are still running are stopped first.
+         *
+         * @param timers Timers to add.
+         * @param section Section to add the timers to, for example
+         *            {@code "[regions]"}, so that they are logged separately.
+         */
+        public static void merge(Map<String, Timer> timers, String section) {
+            Map<String, Timer> current = current();
+            for (Entry<String, Timer> e : timers.entrySet()) {
+                String name = section + " " + e.getKey();
+                e.getValue().stop();
+                if (current.containsKey(name)) {
+                    current.get(name).add(e.getValue());
+                } else {
+                    current.put(name, e.getValue());
+                }
+            }
         }
 
         public static void reset() {
-            timers.clear();
+            current().clear();
+        }
+
+        /**
+         * Keep timers of the current thread in the given map, rather than in
+         * the map that is shared by all threads, until this method is called
+         * again. Code that clusters on several threads at the same time gives
+         * every thread a map of its own this way.
+         *
+         * @param timers Map to keep timers in, or {@code null} to use the
+         *            shared map again.
+         * @return The map that timers were kept in before, or {@code null}
+         *         when that was the shared map.
+         */
+        public static Map<String, Timer> scope(Map<String, Timer> timers) {
+            Map<String, Timer> previous = scoped.get();
+            if (timers == null) {
+                scoped.remove();
+            } else {
+                scoped.set(timers);
+            }
+            return previous;
+        }
+
+
+        /**
+         * Returns the map that the current thread keeps timers in.
+         */
+        private static Map<String, Timer> current() {
+            Map<String, Timer> timers = scoped.get();
+            return (timers == null ? Timers.timers : timers);
         }
 
     }